@@ -0,0 +1,61 @@
+package org.geryon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExceptionHandlers#getHandler(Class)} with 20 registered handlers, for an exception with a handler of its own,
+ * one handled by the handler of a superclass, and one handled by the default handler.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionHandlerResolutionBenchmark {
+    private Class<? extends Throwable> handled = IllegalStateException.class;
+    private Class<? extends Throwable> inherited = UncheckedIOException.class;
+    private Class<? extends Throwable> unhandled = OutOfMemoryError.class;
+
+    @Setup
+    public void setup() {
+        ExceptionHandlers.handlers().clear();
+
+        for (int i = 0; i < 18; i++) {
+            ExceptionHandlers.addHandler(Failure.class, (e, r) -> null);
+        }
+
+        ExceptionHandlers.addHandler(RuntimeException.class, (e, r) -> null);
+        ExceptionHandlers.addHandler(IllegalStateException.class, (e, r) -> null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ExceptionHandlers.handlers().clear();
+    }
+
+    @Benchmark
+    public Object handled() {
+        return ExceptionHandlers.getHandler(handled);
+    }
+
+    @Benchmark
+    public Object inherited() {
+        return ExceptionHandlers.getHandler(inherited);
+    }
+
+    @Benchmark
+    public Object unhandled() {
+        return ExceptionHandlers.getHandler(unhandled);
+    }
+
+    private static class Failure extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
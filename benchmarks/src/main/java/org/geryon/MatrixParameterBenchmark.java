@@ -0,0 +1,69 @@
+package org.geryon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MatrixParameters#scan(String)} against the previous implementation, which took the raw path with two regular
+ * expressions and then split the path again for the matrix parameters: for a path with matrix parameters, the raw path
+ * and the parameters, and for a path without any, just the raw path, which is all most requests need.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixParameterBenchmark {
+    private String path = "/users/42/orders/1337";
+    private String matrixPath = "/users;active=true/42/orders;sort=date;page=2/1337";
+
+    @Benchmark
+    public Object scan() {
+        final MatrixParameters parameters = MatrixParameters.scan(matrixPath);
+        parameters.parameters();
+        return parameters.rawPath();
+    }
+
+    @Benchmark
+    public Object scanWithoutParameters() {
+        return MatrixParameters.scan(path).rawPath();
+    }
+
+    @Benchmark
+    public Object regex() {
+        regexParameters(matrixPath);
+        return regexRawPath(matrixPath);
+    }
+
+    @Benchmark
+    public Object regexWithoutParameters() {
+        return regexRawPath(path);
+    }
+
+    private static String regexRawPath(String uri) {
+        return uri.replaceAll(";(.)+/", "/").replaceAll(";(.)+", "");
+    }
+
+    private static Map<String, Map<String, String>> regexParameters(String url) {
+        final Map<String, Map<String, String>> matrixParameters = new HashMap<>();
+
+        for (String s : url.split("/")) {
+            if (!s.contains(";")) continue;
+
+            final String[] result = s.split(";");
+
+            for (int i = 1; i < result.length; i++) {
+                final String[] keyValue = result[i].split("=");
+                matrixParameters.computeIfAbsent(result[0], k -> new HashMap<>()).put(keyValue[0], keyValue[1]);
+            }
+        }
+
+        return matrixParameters;
+    }
+}
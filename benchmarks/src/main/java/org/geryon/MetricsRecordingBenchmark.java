@@ -0,0 +1,36 @@
+package org.geryon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording of the metrics of a request, as the dispatcher does: the request is started, its handler, queue
+ * and write phases are recorded, and its status is counted. Every thread records on the same route,
+ * as the event loops do on a busy one. With the gc profiler, the allocation rate shows it allocates nothing.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsRecordingBenchmark {
+    private RouteMetrics route;
+
+    @Setup
+    public void setup() {
+        route = new Metrics().route(new RequestHandler("GET", "/users/:id", "application/json", null, null, null));
+    }
+
+    @Benchmark
+    public void request() {
+        route.started();
+        route.handled(85_000);
+        route.queued(1_200);
+        route.written(200, 40_000);
+    }
+}
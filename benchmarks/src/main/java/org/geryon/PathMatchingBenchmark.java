@@ -0,0 +1,61 @@
+package org.geryon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Path parameter extraction of a single handler: finding it through the {@link Router}, which binds the parameters
+ * with the precompiled {@link PathTemplate} owned by the handler, as requests do, against the former approach,
+ * which compiled the handler's pathAsPattern for every request.
+ * Run it with -prof gc to compare the allocations per operation.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatchingBenchmark {
+    private RequestHandler handler;
+    private Router router;
+    private String uri;
+
+    @Setup
+    public void setup() {
+        handler = new RequestHandler("GET", "/users/:id/orders/:orderId", "text/plain", r -> CompletableFuture.completedFuture("ok"), null, null);
+        router = new Router(Collections.singletonList(handler), 0);
+        uri = "/users/42/orders/1337";
+    }
+
+    @Benchmark
+    public Map<String, String> router() {
+        return router.find(uri).get(0).pathParameters();
+    }
+
+    @Benchmark
+    public Map<String, String> patternPerRequest() {
+        final List<String> wantedFields = handler.wantedPathParameters();
+        final Matcher m = Pattern.compile(handler.pathAsPattern()).matcher(uri);
+
+        if (!m.find() || !m.group().equals(uri)) {
+            return null;
+        }
+
+        final Maps.MapBuilder<String, String> mapBuilder = Maps.newMap();
+
+        for (int i = 1; i <= m.groupCount(); i++) {
+            mapBuilder.put(wantedFields.get(i - 1), m.group(i).replace("/", ""));
+        }
+
+        return mapBuilder.build();
+    }
+}
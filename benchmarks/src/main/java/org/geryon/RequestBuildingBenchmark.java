@@ -0,0 +1,80 @@
+package org.geryon;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a Netty request into a {@link Request}: a header lookup through its view of the headers, the whole request
+ * (body, query parameters and path parameters), and a single query parameter or all of them, for a typical JSON POST.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+    private RequestDispatcher dispatcher;
+    private FullHttpRequest httpRequest;
+    private Map<String, String> pathParameters;
+
+    @Setup
+    public void setup() {
+        final String body = "{\"name\":\"geryon\",\"description\":\"a library that runs on top of netty\",\"tags\":[\"http\",\"reactive\"]}";
+
+        dispatcher = new RequestDispatcher();
+        httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/users/42/orders?page=2&size=50&sort=date",
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+
+        httpRequest.headers()
+                   .set("Host", "localhost:8080")
+                   .set("User-Agent", "Mozilla/5.0 (X11; Linux x86_64)")
+                   .set("Accept", "application/json")
+                   .set("Accept-Encoding", "gzip, deflate")
+                   .set("Accept-Language", "en-US,en;q=0.5")
+                   .set("Content-Type", "application/json")
+                   .set("Content-Length", body.length())
+                   .set("Connection", "keep-alive")
+                   .set("X-Version", "1");
+
+        pathParameters = Maps.<String, String>newMap().put("id", "42").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpRequest.release();
+    }
+
+    @Benchmark
+    public String headers() {
+        return dispatcher.getHeaders(httpRequest).get("x-version");
+    }
+
+    @Benchmark
+    public Request request() {
+        return dispatcher.getRequest(httpRequest, "/users/42/orders", MatrixParameters.scan("/users/42/orders"), dispatcher.getHeaders(httpRequest),
+                new QueryParameters(httpRequest.uri()), pathParameters);
+    }
+
+    @Benchmark
+    public String queryParameter() {
+        return new QueryParameters(httpRequest.uri()).get("size");
+    }
+
+    @Benchmark
+    public Map<String, String> queryParameters() {
+        final QueryParameters queryParameters = new QueryParameters(httpRequest.uri());
+        queryParameters.entrySet();
+        return queryParameters;
+    }
+}
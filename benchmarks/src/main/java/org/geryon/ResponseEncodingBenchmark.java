@@ -0,0 +1,78 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of handler results into Netty responses: a {@link Response} (standardResponse)
+ * and a plain object (rawResponse), with small and large bodies, encoded into pooled direct buffers
+ * (the server default) or unpooled heap ones.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+    @Param({"64", "16384"})
+    private int bodySize;
+
+    @Param({"pooled-direct", "unpooled-heap"})
+    private String allocatorType;
+
+    private ByteBufAllocator allocator;
+
+    private RequestDispatcher dispatcher;
+    private FullHttpRequest httpRequest;
+    private RequestHandler handler;
+    private Response response;
+    private String body;
+
+    @Setup
+    public void setup() {
+        final StringBuilder builder = new StringBuilder(bodySize);
+
+        while (builder.length() < bodySize) {
+            builder.append("{\"id\":1,\"name\":\"geryon\"}");
+        }
+
+        body = builder.substring(0, bodySize);
+
+        allocator = allocatorType.equals("pooled-direct") ? new PooledByteBufAllocator(true) : new UnpooledByteBufAllocator(false);
+        dispatcher = new RequestDispatcher();
+        httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/users");
+        handler = new RequestHandler("GET", "/users", "application/json", r -> CompletableFuture.completedFuture(body), null,
+                Maps.<String, String>newMap().put("X-Powered-By", "geryon").build());
+        response = new Response.Builder().httpStatus(200).body(body).header("X-Request-Id", "1234").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpRequest.release();
+    }
+
+    @Benchmark
+    public boolean standardResponse() {
+        final FullHttpResponse encoded = dispatcher.standardResponse(allocator, httpRequest, handler, response);
+        return encoded.release();
+    }
+
+    @Benchmark
+    public boolean rawResponse() {
+        final FullHttpResponse encoded = dispatcher.rawResponse(allocator, httpRequest, handler, body);
+        return encoded.release();
+    }
+}
@@ -0,0 +1,76 @@
+package org.geryon;
+
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestDispatcher#getHandler(FullHttpRequest)} with 10, 100 and 1000 registered routes.
+ * Half of the routes are static and half have a path parameter; the requests target the last registered ones.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int routes;
+
+    private RequestDispatcher dispatcher;
+    private FullHttpRequest staticRequest;
+    private FullHttpRequest parameterRequest;
+    private FullHttpRequest notFoundRequest;
+
+    @Setup
+    public void setup() {
+        RequestHandlers.requestHandlers().clear();
+
+        for (int i = 0; i < routes / 2; i++) {
+            RequestHandlers.addHandler(handler("/resources" + i + "/items"));
+            RequestHandlers.addHandler(handler("/resources" + i + "/items/:id"));
+        }
+
+        final int last = routes / 2 - 1;
+
+        dispatcher = new RequestDispatcher();
+        staticRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/resources" + last + "/items");
+        parameterRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/resources" + last + "/items/42?expand=true");
+        notFoundRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/unknown/items/42");
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestHandlers.requestHandlers().clear();
+        staticRequest.release();
+        parameterRequest.release();
+        notFoundRequest.release();
+    }
+
+    @Benchmark
+    public Object staticRoute() {
+        return dispatcher.getHandler(staticRequest);
+    }
+
+    @Benchmark
+    public Object parameterRoute() {
+        return dispatcher.getHandler(parameterRequest);
+    }
+
+    @Benchmark
+    public Object notFound() {
+        return dispatcher.getHandler(notFoundRequest);
+    }
+
+    private static RequestHandler handler(String path) {
+        return new RequestHandler("GET", path, "text/plain", r -> CompletableFuture.completedFuture("ok"), null, null);
+    }
+}
@@ -0,0 +1,133 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TLS handshakes per second of the server, with the JDK and the OpenSSL (netty-tcnative) providers:
+ * full handshakes, from clients without a session, and resumed ones, from a client returning with its session.
+ * <p>
+ * Both sides run in memory, so only the cost of the handshakes is measured. The client is always the JDK one, over TLSv1.2.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlsHandshakeBenchmark {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    @Param({"JDK", "OPENSSL"})
+    private String provider;
+
+    private SelfSignedCertificate certificate;
+    private TlsContext server;
+    private SslContext client;
+    private int nextPort = 1;
+
+    @Setup
+    public void setup() throws Exception {
+        certificate = new SelfSignedCertificate();
+
+        final Tls tls = new Tls.Builder().certificateChain(certificate.certificate().toPath())
+                                         .privateKey(certificate.privateKey().toPath())
+                                         .provider(SslProvider.valueOf(provider))
+                                         .build();
+
+        server = new TlsContext(tls, false);
+        client = SslContextBuilder.forClient()
+                                  .sslProvider(SslProvider.JDK)
+                                  .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                                  .protocols("TLSv1.2")
+                                  .build();
+
+        final byte[] first = handshake(0).getSession().getId();
+        final byte[] resumed = handshake(0).getSession().getId();
+
+        if (!Arrays.equals(first, resumed)) {
+            throw new IllegalStateException("the sessions of the " + provider + " provider are not being resumed");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        certificate.delete();
+    }
+
+    /**
+     * Every client is a new peer, so there is no session to resume.
+     */
+    @Benchmark
+    public SSLEngine fullHandshake() throws SSLException {
+        return handshake(nextPort++);
+    }
+
+    @Benchmark
+    public SSLEngine resumedHandshake() throws SSLException {
+        return handshake(0);
+    }
+
+    private SSLEngine handshake(int port) throws SSLException {
+        final SSLEngine clientEngine = client.newEngine(ByteBufAllocator.DEFAULT, "localhost", port);
+        final SSLEngine serverEngine = server.newHandler(ByteBufAllocator.DEFAULT).engine();
+
+        final ByteBuffer clientToServer = ByteBuffer.allocate(clientEngine.getSession().getPacketBufferSize());
+        final ByteBuffer serverToClient = ByteBuffer.allocate(serverEngine.getSession().getPacketBufferSize());
+        final ByteBuffer clientApplication = ByteBuffer.allocate(clientEngine.getSession().getApplicationBufferSize());
+        final ByteBuffer serverApplication = ByteBuffer.allocate(serverEngine.getSession().getApplicationBufferSize());
+
+        clientEngine.beginHandshake();
+        serverEngine.beginHandshake();
+
+        boolean clientFinished = false;
+        boolean serverFinished = false;
+
+        for (int round = 0; !clientFinished || !serverFinished; round++) {
+            if (round == 100) {
+                throw new IllegalStateException("the handshake did not finish");
+            }
+
+            if (!clientFinished) clientFinished = finished(clientEngine, clientEngine.wrap(EMPTY, clientToServer));
+            if (!serverFinished) serverFinished = finished(serverEngine, serverEngine.wrap(EMPTY, serverToClient));
+
+            clientToServer.flip();
+            serverToClient.flip();
+
+            if (!clientFinished) clientFinished = finished(clientEngine, clientEngine.unwrap(serverToClient, clientApplication));
+            if (!serverFinished) serverFinished = finished(serverEngine, serverEngine.unwrap(clientToServer, serverApplication));
+
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+
+        clientEngine.closeOutbound();
+        serverEngine.closeOutbound();
+
+        return clientEngine;
+    }
+
+    private static boolean finished(SSLEngine engine, SSLEngineResult result) {
+        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            for (Runnable task = engine.getDelegatedTask(); task != null; task = engine.getDelegatedTask()) {
+                task.run();
+            }
+        }
+
+        return result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+}
@@ -0,0 +1,59 @@
+package org.geryon;
+
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestDispatcher#getHandler(FullHttpRequest)} with 1, 4 and 16 versions of the same route,
+ * told apart by matchers on the X-Version header. The request targets the last version, so every matcher runs.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionedRoutingBenchmark {
+    @Param({"1", "4", "16"})
+    private int versions;
+
+    private RequestDispatcher dispatcher;
+    private FullHttpRequest request;
+
+    @Setup
+    public void setup() {
+        RequestHandlers.requestHandlers().clear();
+
+        for (int i = 1; i <= versions; i++) {
+            final String version = String.valueOf(i);
+            RequestHandlers.addHandler(new RequestHandler("GET", "/users/:id", "application/json",
+                    r -> CompletableFuture.completedFuture("ok"), r -> version.equals(r.header("X-Version")), null));
+        }
+
+        dispatcher = new RequestDispatcher();
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/users/42?expand=true");
+        request.headers()
+               .set("Host", "localhost:8080")
+               .set("Accept", "application/json")
+               .set("X-Version", String.valueOf(versions));
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestHandlers.requestHandlers().clear();
+        request.release();
+    }
+
+    @Benchmark
+    public Object versionedRoute() {
+        return dispatcher.getHandler(request);
+    }
+}
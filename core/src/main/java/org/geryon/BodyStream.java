@@ -0,0 +1,200 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ServerChannel;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The body of a request sent to a streaming handler, delivered in chunks as they are read from the connection,
+ * instead of being aggregated in memory first.
+ * <p>
+ * Reading is driven by the subscriber: the connection is not read while a chunk is being consumed,
+ * so the memory held per connection is bounded by a few chunks, no matter the size of the body.
+ * Every chunk is delivered on the event loop of the connection and released once consumed,
+ * so it must be retained (or copied) if it is needed afterwards.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class BodyStream {
+    private static final CompletableFuture<Void> CONSUMED = CompletableFuture.completedFuture(null);
+
+    private final ChannelHandlerContext ctx;
+    private final Queue<HttpContent> pending = new ArrayDeque<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Function<ByteBuf, ? extends CompletionStage<?>> subscriber;
+    private boolean consuming;
+    private boolean discarding;
+
+    BodyStream(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+
+        //nothing is read until someone subscribes
+        ctx.channel().config().setAutoRead(false);
+    }
+
+    /**
+     * Subscribes to the body. The next chunk is only read once the stage returned for the previous one completes.
+     *
+     * @return a future completed once the whole body is consumed, or completed exceptionally if the connection
+     * is closed or a chunk fails to be consumed
+     */
+    public CompletableFuture<Void> subscribe(Function<ByteBuf, ? extends CompletionStage<?>> onChunk) {
+        onEventLoop(() -> {
+            if (subscriber != null) {
+                completion.completeExceptionally(new IllegalStateException("the body stream already has a subscriber"));
+                return;
+            }
+
+            subscriber = onChunk;
+            drain();
+        });
+
+        return completion;
+    }
+
+    /**
+     * Subscribes to the body with a consumer that handles every chunk right away, on the event loop. It must not block.
+     */
+    public CompletableFuture<Void> forEach(Consumer<ByteBuf> onChunk) {
+        return subscribe(chunk -> {
+            onChunk.accept(chunk);
+            return CONSUMED;
+        });
+    }
+
+    void offer(HttpContent content) {
+        if (discarding) {
+            content.release();
+            return;
+        }
+
+        pending.add(content);
+        drain();
+    }
+
+    /**
+     * Drops whatever is left of the body, e.g. when the handler responded without consuming it,
+     * so the connection can be read again.
+     */
+    void discard() {
+        onEventLoop(() -> {
+            if (!discarding) {
+                fail(new CancellationException("the body was not consumed"));
+                resume();
+            }
+        });
+    }
+
+    void fail(Throwable cause) {
+        discarding = true;
+
+        for (HttpContent content = pending.poll(); content != null; content = pending.poll()) {
+            content.release();
+        }
+
+        completion.completeExceptionally(cause);
+    }
+
+    private void drain() {
+        while (subscriber != null && !consuming && !discarding) {
+            final HttpContent content = pending.poll();
+
+            if (content == null) {
+                resume();
+                return;
+            }
+
+            if (content.content().isReadable()) {
+                consume(content);
+
+                if (consuming) {
+                    //backpressure: the connection is not read until the chunk is consumed
+                    ctx.channel().config().setAutoRead(false);
+                    return;
+                }
+            } else {
+                content.release();
+                complete(content);
+            }
+        }
+    }
+
+    private void consume(HttpContent content) {
+        final CompletableFuture<?> consumed;
+
+        try {
+            consumed = subscriber.apply(content.content()).toCompletableFuture();
+        } catch (Throwable e) {
+            content.release();
+            failConsuming(e);
+            return;
+        }
+
+        if (consumed.isDone() && !consumed.isCompletedExceptionally()) {
+            content.release();
+            complete(content);
+            return;
+        }
+
+        consuming = true;
+
+        consumed.whenComplete((r, e) -> onEventLoop(() -> {
+            content.release();
+            consuming = false;
+
+            if (e != null) {
+                failConsuming(e);
+            } else {
+                complete(content);
+                drain();
+            }
+        }));
+    }
+
+    private void complete(HttpContent content) {
+        if (content instanceof LastHttpContent) {
+            discarding = true;
+            completion.complete(null);
+            resume();
+        }
+    }
+
+    private void failConsuming(Throwable e) {
+        fail(e);
+
+        //the rest of the body is still read, and dropped, so the connection can be reused
+        resume();
+    }
+
+    private void resume() {
+        ctx.channel().config().setAutoRead(true);
+
+        //an HTTP/2 stream reads the frames its connection buffered, and the flow control window updates of those reads
+        //are only written to the connection: unless it is flushed, the client never sends the rest of the body
+        final Channel parent = ctx.channel().parent();
+
+        if (parent != null && !(parent instanceof ServerChannel)) {
+            parent.flush();
+        }
+    }
+
+    private void onEventLoop(Runnable task) {
+        if (ctx.executor().inEventLoop()) {
+            task.run();
+        } else {
+            ctx.executor().execute(task);
+        }
+    }
+}
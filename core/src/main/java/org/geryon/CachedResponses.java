@@ -0,0 +1,192 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cached responses of a route with a {@link ResponseCache}, evicted in least recently used order.
+ * <p>
+ * Entries keep the encoded response: a hit is a new response over a retained duplicate of the cached body,
+ * so nothing is encoded or copied again. Concurrent misses of the same key are coalesced: the first one runs
+ * the handler, the others wait for its response.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class CachedResponses {
+    private final ResponseCache cache;
+    private final long ttl;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> loading = new ConcurrentHashMap<>();
+    private long size;
+
+    CachedResponses(ResponseCache cache) {
+        this.cache = cache;
+        this.ttl = TimeUnit.SECONDS.toNanos(cache.ttl());
+    }
+
+    boolean accepts(FullHttpRequest httpRequest) {
+        return HttpMethod.GET.equals(httpRequest.method()) || HttpMethod.HEAD.equals(httpRequest.method());
+    }
+
+    /**
+     * The query parameters are taken still encoded and sorted, so the same parameters in another order share the entry.
+     */
+    String key(FullHttpRequest httpRequest, String rawPath) {
+        final StringBuilder key = new StringBuilder(httpRequest.method().name()).append(' ').append(rawPath);
+        final String uri = httpRequest.uri();
+        final int query = uri.indexOf('?');
+
+        if (query >= 0) {
+            final String[] parameters = uri.substring(query + 1).split("&");
+            Arrays.sort(parameters);
+            key.append('?');
+
+            for (String parameter : parameters) {
+                if (!parameter.isEmpty()) key.append(parameter).append('&');
+            }
+        }
+
+        for (String header : cache.vary()) {
+            final String value = httpRequest.headers().get(header);
+            key.append('\n').append(value == null ? "" : value);
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * @return the cached response of the key, or null if there is none or it expired
+     */
+    synchronized FullHttpResponse get(String key, boolean keepAlive) {
+        final Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            remove(key);
+            return null;
+        }
+
+        return entry.response(keepAlive);
+    }
+
+    /**
+     * @return the load of the key already in progress, whose result tells whether its response was cached,
+     * or null if the caller is the one that has to load it and then call {@link #loaded(String, FullHttpResponse)}
+     */
+    CompletableFuture<Boolean> load(String key) {
+        return loading.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    /**
+     * Caches the response of the handler, if it can be cached, and hands it to the requests waiting for it.
+     *
+     * @param response the response, which is still to be written, or null if the handler failed or streamed its body
+     */
+    void loaded(String key, FullHttpResponse response) {
+        final boolean cached = response != null && cacheable(response) && put(key, response);
+        final CompletableFuture<Boolean> load = loading.remove(key);
+
+        if (load != null) {
+            load.complete(cached);
+        }
+    }
+
+    synchronized void clear() {
+        entries.values().forEach(Entry::release);
+        entries.clear();
+        size = 0;
+    }
+
+    private boolean cacheable(FullHttpResponse response) {
+        final HttpHeaders headers = response.headers();
+
+        return response.status().code() == 200 &&
+                !headers.contains(HttpHeaderNames.SET_COOKIE) &&
+                !headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_STORE, true) &&
+                !headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.PRIVATE, true);
+    }
+
+    private synchronized boolean put(String key, FullHttpResponse response) {
+        final Entry entry = new Entry(response, System.nanoTime() + ttl);
+
+        if (entry.size > cache.maxSize()) {
+            entry.release();
+            return false;
+        }
+
+        remove(key);
+        entries.put(key, entry);
+        size += entry.size;
+
+        final Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+
+        while (size > cache.maxSize()) {
+            final Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            size -= evicted.size;
+            evicted.release();
+        }
+
+        return true;
+    }
+
+    private void remove(String key) {
+        final Entry entry = entries.remove(key);
+
+        if (entry != null) {
+            size -= entry.size;
+            entry.release();
+        }
+    }
+
+    private static class Entry {
+        private final HttpHeaders headers;
+        private final ByteBuf content;
+        private final long expiresAt;
+        private final long size;
+
+        Entry(FullHttpResponse response, long expiresAt) {
+            this.headers = new DefaultHttpHeaders().set(response.headers()).remove(HttpHeaderNames.CONNECTION);
+            this.content = response.content().retainedDuplicate();
+            this.expiresAt = expiresAt;
+
+            long size = content.readableBytes();
+
+            for (Map.Entry<String, String> header : headers) {
+                size += header.getKey().length() + header.getValue().length();
+            }
+
+            this.size = size;
+        }
+
+        /**
+         * The headers are copied as well, since the handlers after the dispatcher, such as the compressor, change them.
+         */
+        FullHttpResponse response(boolean keepAlive) {
+            final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    content.retainedDuplicate(), new DefaultHttpHeaders().set(headers), EmptyHttpHeaders.INSTANCE);
+
+            if (keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+
+            return response;
+        }
+
+        void release() {
+            content.release();
+        }
+    }
+}
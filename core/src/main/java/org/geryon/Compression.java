@@ -0,0 +1,107 @@
+package org.geryon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compression of the response bodies, with gzip or deflate, as the client accepts in Accept-Encoding.
+ * <p>
+ * Only bodies of the allowed content types and at least as large as the minimum size are compressed. Bodies whose
+ * response already has a Content-Encoding header are sent as they are, so a handler can serve precompressed content.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class Compression {
+    private final Integer level;
+    private final Integer minSize;
+    private final Set<String> contentTypes;
+
+    private Compression(Builder builder) {
+        if (builder.level < 1 || builder.level > 9) {
+            throw new IllegalArgumentException("the compression level must be between 1 and 9, but it was " + builder.level);
+        }
+
+        this.level = builder.level;
+        this.minSize = builder.minSize;
+        this.contentTypes = Collections.unmodifiableSet(new HashSet<>(builder.contentTypes));
+    }
+
+    public Integer level() {
+        return level;
+    }
+
+    public Integer minSize() {
+        return minSize;
+    }
+
+    public Set<String> contentTypes() {
+        return contentTypes;
+    }
+
+    /**
+     * @param contentType the Content-Type of a response, with or without parameters
+     * @return whether the type is in the allowlist, either by itself or by a wildcard of its kind, such as text/*
+     */
+    boolean compresses(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        final int parameters = contentType.indexOf(';');
+        final String type = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase();
+        final int slash = type.indexOf('/');
+
+        return contentTypes.contains(type) || (slash > 0 && contentTypes.contains(type.substring(0, slash) + "/*"));
+    }
+
+    public static class Builder {
+        private Integer level = 6;
+        private Integer minSize = 1024;
+        private Set<String> contentTypes = new HashSet<>(Arrays.asList(
+                "text/*",
+                "application/json",
+                "application/javascript",
+                "application/xml",
+                "image/svg+xml"
+        ));
+
+        private Builder self = this;
+
+        /**
+         * From 1, the fastest, to 9, the smallest output.
+         */
+        public Builder level(Integer level) {
+            this.level = level;
+            return self;
+        }
+
+        /**
+         * Smallest body compressed, in bytes: below that, the compression costs more than it saves.
+         * Streamed bodies, whose size is unknown, are always compressed.
+         */
+        public Builder minSize(Integer minSize) {
+            this.minSize = minSize;
+            return self;
+        }
+
+        /**
+         * Content types that are compressed, replacing the default ones (text, JSON, JavaScript, XML and SVG).
+         * A type can be a wildcard of its kind, such as text/*.
+         */
+        public Builder contentTypes(String... contentTypes) {
+            this.contentTypes = new HashSet<>();
+
+            for (String contentType : contentTypes) {
+                this.contentTypes.add(contentType.toLowerCase());
+            }
+
+            return self;
+        }
+
+        public Compression build() {
+            return new Compression(this);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.zip.CRC32;
+
+/**
+ * Answers conditional GET and HEAD requests: a 200 response whose ETag matches the If-None-Match of its request,
+ * or whose Last-Modified is not after its If-Modified-Since, is replaced by a 304, without the body.
+ * <p>
+ * With automatic ETags, the 200 responses without one get a weak ETag, from the CRC32 of their body.
+ * Responses with a streamed body are always sent as they are.
+ * <p>
+ * Just like the compressor, it relies on every request being answered by a single response, in the order they came.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class ConditionalResponses extends ChannelDuplexHandler {
+    private static final Conditions UNSAFE = new Conditions(false, null, null);
+    private static final Conditions UNCONDITIONAL = new Conditions(true, null, null);
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private final boolean etags;
+    private final Queue<Conditions> conditions = new ArrayDeque<>();
+
+    ConditionalResponses(boolean etags) {
+        this.etags = etags;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            conditions.add(Conditions.of((HttpRequest) msg));
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse && ((HttpResponse) msg).status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+            final Conditions request = conditions.poll();
+
+            if (request != null && request.safe && msg instanceof FullHttpResponse && ((HttpResponse) msg).status().code() == 200) {
+                msg = evaluate(request, (FullHttpResponse) msg);
+            }
+        }
+
+        ctx.write(msg, promise);
+    }
+
+    private FullHttpResponse evaluate(Conditions request, FullHttpResponse response) {
+        final HttpHeaders headers = response.headers();
+
+        if (etags && !headers.contains(HttpHeaderNames.ETAG)) {
+            headers.set(HttpHeaderNames.ETAG, etag(response.content()));
+        }
+
+        if (!notModified(request.ifNoneMatch, request.ifModifiedSince, headers.get(HttpHeaderNames.ETAG), lastModified(headers))) {
+            return response;
+        }
+
+        final FullHttpResponse notModified = new DefaultFullHttpResponse(response.protocolVersion(), HttpResponseStatus.NOT_MODIFIED,
+                Unpooled.EMPTY_BUFFER, headers, EmptyHttpHeaders.INSTANCE);
+
+        headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+        headers.remove(HttpHeaderNames.CONTENT_TYPE);
+        response.release();
+
+        return notModified;
+    }
+
+    private static Date lastModified(HttpHeaders headers) {
+        final String lastModified = headers.get(HttpHeaderNames.LAST_MODIFIED);
+        return lastModified == null ? null : DateFormatter.parseHttpDate(lastModified);
+    }
+
+    private static String etag(ByteBuf content) {
+        final CRC32 crc = new CRC32();
+
+        for (ByteBuffer buffer : content.nioBuffers()) {
+            crc.update(buffer);
+        }
+
+        return "W/\"" + Integer.toHexString(content.readableBytes()) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    /**
+     * Evaluates If-None-Match, with the weak comparison, or, only if there is no If-None-Match, If-Modified-Since.
+     *
+     * @param etag         the ETag of the current representation, or null if it has none
+     * @param lastModified when the current representation was last modified, or null if unknown
+     * @return whether the client already has the current representation
+     */
+    static boolean notModified(String ifNoneMatch, String ifModifiedSince, String etag, Date lastModified) {
+        if (ifNoneMatch != null) {
+            return etag != null && matches(ifNoneMatch, quoted(etag));
+        }
+
+        if (ifModifiedSince != null && lastModified != null) {
+            final Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+            //HTTP dates have no milliseconds
+            return since != null && lastModified.getTime() / 1000 <= since.getTime() / 1000;
+        }
+
+        return false;
+    }
+
+    /**
+     * Formats the date as HTTP requires, with a two-digit day, which the DateFormatter of this Netty version does not.
+     */
+    static String httpDate(Instant instant) {
+        return HTTP_DATE.format(instant);
+    }
+
+    /**
+     * @return the ETag with its opaque tag quoted, as the header requires, keeping the W/ prefix of a weak one
+     */
+    static String quoted(String etag) {
+        final boolean weak = etag.startsWith("W/");
+        final String tag = weak ? etag.substring(2) : etag;
+
+        if (tag.startsWith("\"") && tag.endsWith("\"") && tag.length() > 1) {
+            return etag;
+        }
+
+        return (weak ? "W/\"" : "\"") + tag + "\"";
+    }
+
+    /**
+     * The tags are compared without their W/ prefix, which is outside the quotes, so only the quoted parts are looked at.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+
+        final int opaque = etag.indexOf('"');
+        final int length = etag.length() - opaque;
+
+        for (int start = ifNoneMatch.indexOf('"'); start >= 0; start = ifNoneMatch.indexOf('"', start)) {
+            final int end = ifNoneMatch.indexOf('"', start + 1);
+
+            if (end < 0) {
+                return false;
+            }
+
+            if (end - start + 1 == length && ifNoneMatch.regionMatches(start, etag, opaque, length)) {
+                return true;
+            }
+
+            start = end + 1;
+        }
+
+        return false;
+    }
+
+    private static class Conditions {
+        private final boolean safe;
+        private final String ifNoneMatch;
+        private final String ifModifiedSince;
+
+        private Conditions(boolean safe, String ifNoneMatch, String ifModifiedSince) {
+            this.safe = safe;
+            this.ifNoneMatch = ifNoneMatch;
+            this.ifModifiedSince = ifModifiedSince;
+        }
+
+        static Conditions of(HttpRequest request) {
+            if (!HttpMethod.GET.equals(request.method()) && !HttpMethod.HEAD.equals(request.method())) {
+                return UNSAFE;
+            }
+
+            final String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+            final String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+
+            return ifNoneMatch == null && ifModifiedSince == null ? UNCONDITIONAL : new Conditions(true, ifNoneMatch, ifModifiedSince);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the connections and the bytes read from and written to them. It is the first handler of every connection,
+ * so the bytes are counted as they go through the socket: encrypted, with TLS, and with the framing of HTTP/2.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+@ChannelHandler.Sharable
+class ConnectionMetrics extends ChannelDuplexHandler {
+    private final LongAdder open = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        open.increment();
+        accepted.increment();
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        open.decrement();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        bytesRead.add(bytes(msg));
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        bytesWritten.add(bytes(msg));
+        ctx.write(msg, promise);
+    }
+
+    private static long bytes(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+
+        return msg instanceof FileRegion ? ((FileRegion) msg).count() : 0;
+    }
+
+    long open() {
+        return open.sum();
+    }
+
+    long accepted() {
+        return accepted.sum();
+    }
+
+    long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    long bytesWritten() {
+        return bytesWritten.sum();
+    }
+}
@@ -0,0 +1,64 @@
+package org.geryon;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The saturation of an event loop: the tasks waiting to run on it and the delay of a probe task, scheduled on it
+ * at a fixed rate, from the time it is due until it runs. A loop that keeps up runs the probe right away; a busy or
+ * blocked one makes it wait for the task running to end and behind the tasks queued before it, just as the responses
+ * written by other threads do.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class EventLoopMetrics {
+    private final String name;
+    private final EventExecutor loop;
+    private final RouteMetrics.Latency delay = new RouteMetrics.Latency();
+    private long interval;
+    private long due;
+
+    EventLoopMetrics(String name, EventExecutor loop) {
+        this.name = name;
+        this.loop = loop;
+    }
+
+    /**
+     * @return the group and the index of the loop within it, such as worker-0
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the tasks waiting to run on the loop, or -1 if its kind of loop does not tell
+     */
+    public int pendingTasks() {
+        return loop instanceof SingleThreadEventExecutor ? ((SingleThreadEventExecutor) loop).pendingTasks() : -1;
+    }
+
+    /**
+     * @return the delays of the probe since the server started, in microseconds
+     */
+    public Histogram taskDelay() {
+        return delay.snapshot();
+    }
+
+    void start(long intervalMillis) {
+        interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        due = System.nanoTime() + interval;
+        loop.scheduleAtFixedRate(this::probe, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Measures from the time the probe was due, not from the time it ran the previous time, so a loop blocked past
+     * the time of the probe is measured as well. Runs missed while blocked run right after, each late by less.
+     */
+    private void probe() {
+        delay.record(System.nanoTime() - due);
+        due += interval;
+    }
+}
@@ -1,14 +1,16 @@
 package org.geryon;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
  */
 public class ExceptionHandlers {
-    private static List<ExceptionHandler<? extends Throwable>> exceptionHandlers = new ArrayList<>();
+    private static VersionedList<ExceptionHandler<? extends Throwable>> exceptionHandlers = new VersionedList<>();
+    private static volatile Resolutions resolutions;
 
     private static BiFunction<Throwable, Request, Response> defaultHandler =
             (t, r) -> new Response.Builder().body(t.getMessage()).contentType("text/plain").httpStatus(500).build();
@@ -20,17 +22,52 @@ public class ExceptionHandlers {
         exceptionHandlers.add(new ExceptionHandler<>(forException, handler));
     }
 
+    /**
+     * The handler of the nearest class of the exception, from the exception itself up to Throwable, no matter the order
+     * they were registered in. The handler of each exception class is resolved once, and cached until the handlers change.
+     */
     public static<T extends Throwable> BiFunction<T, Request, Response> getHandler(Class<? extends Throwable> forException){
-        for (ExceptionHandler<? extends Throwable> handler : exceptionHandlers) {
-            if(handler.match(forException)) {
-                return (BiFunction<T, Request, Response>) handler;
-            }
-        }
+        final Map<Class<?>, BiFunction<?, Request, Response>> resolved = resolutions().handlers;
+        final BiFunction<?, Request, Response> handler = resolved.get(forException);
 
-        return (BiFunction<T, Request, Response>) defaultHandler;
+        return (BiFunction<T, Request, Response>) (handler != null ? handler : resolved.computeIfAbsent(forException, ExceptionHandlers::resolve));
     }
 
     public static List<ExceptionHandler<? extends Throwable>> handlers() {
         return exceptionHandlers;
     }
+
+    private static Resolutions resolutions() {
+        final Resolutions current = resolutions;
+
+        if (current != null && current.version == exceptionHandlers.version()) {
+            return current;
+        }
+
+        return resolutions = new Resolutions(exceptionHandlers.version());
+    }
+
+    private static BiFunction<?, Request, Response> resolve(Class<?> exception) {
+        for (Class<?> type = exception; type != null; type = type.getSuperclass()) {
+            for (ExceptionHandler<? extends Throwable> handler : exceptionHandlers) {
+                if (handler.exception() == type) {
+                    return handler;
+                }
+            }
+        }
+
+        return defaultHandler;
+    }
+
+    /**
+     * The handlers resolved for a version of the registered ones.
+     */
+    private static class Resolutions {
+        private final int version;
+        private final Map<Class<?>, BiFunction<?, Request, Response>> handlers = new ConcurrentHashMap<>();
+
+        private Resolutions(int version) {
+            this.version = version;
+        }
+    }
 }
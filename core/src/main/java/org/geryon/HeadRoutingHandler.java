@@ -0,0 +1,222 @@
+package org.geryon;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+
+/**
+ * Sits between the http codec and the aggregator and handles every request as soon as its head is read:
+ * <ul>
+ * <li>requests the codec could not decode, such as the ones with too long headers, are rejected (431, 414 or 400);</li>
+ * <li>requests whose body is over the limit of their handlers are rejected with 413, before the body is buffered;</li>
+ * <li>requests of streaming handlers are dispatched right away, and their contents are fed to the {@link BodyStream}
+ * of the request, instead of going through the aggregator.</li>
+ * </ul>
+ * Any other request goes on to be aggregated, as usual, and is only routed once its body is read, so the matchers of
+ * aggregated handlers always see the body: routing a request here, when there are streaming handlers, only tells whether
+ * it streams. Unless there are streaming handlers or handlers with their own body limit, requests are not looked at here
+ * at all: the aggregator enforces the server limit by itself.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class HeadRoutingHandler extends ChannelInboundHandlerAdapter {
+    private static final FullHttpResponse CONTINUE =
+            new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER);
+
+    private final RequestDispatcher requestDispatcher;
+    private final long maxContentLength;
+
+    private BodyStream current;
+    private long remaining = -1;
+    private boolean rejected;
+
+    HeadRoutingHandler(RequestDispatcher requestDispatcher, long maxContentLength) {
+        this.requestDispatcher = requestDispatcher;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (rejected) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        if (msg instanceof HttpObject && ((HttpObject) msg).decoderResult().isFailure()) {
+            final Throwable cause = ((HttpObject) msg).decoderResult().cause();
+            ReferenceCountUtil.release(msg);
+            reject(ctx, failureStatus(msg, cause));
+            return;
+        }
+
+        if (msg instanceof HttpRequest && !(msg instanceof FullHttpRequest)) {
+            if (head(ctx, (HttpRequest) msg)) {
+                return;
+            }
+        } else if (msg instanceof HttpContent) {
+            final HttpContent content = (HttpContent) msg;
+
+            if (remaining >= 0 && (remaining -= content.content().readableBytes()) < 0) {
+                content.release();
+                tooLarge(ctx);
+                return;
+            }
+
+            if (current != null) {
+                current.offer(content);
+
+                if (msg instanceof LastHttpContent) {
+                    current = null;
+                }
+
+                return;
+            }
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * @return whether the request was taken over here, instead of going on to the aggregator
+     */
+    private boolean head(ChannelHandlerContext ctx, HttpRequest head) {
+        remaining = -1;
+
+        final Router router = RequestHandlers.router();
+
+        if (!router.routesOnHead()) {
+            return false;
+        }
+
+        if (router.streams()) {
+            final FullHttpRequest httpRequest =
+                    new DefaultFullHttpRequest(head.protocolVersion(), head.method(), head.uri(), Unpooled.EMPTY_BUFFER, head.headers(), EmptyHttpHeaders.INSTANCE);
+
+            final RequestDispatcher.RequestExecution execution = requestDispatcher.getHandler(httpRequest);
+
+            if (execution.handler().isStreaming()) {
+                stream(ctx, head, httpRequest, execution);
+                return true;
+            }
+        }
+
+        remaining = maxContentLength(router, head);
+
+        if (HttpUtil.getContentLength(head, -1L) > remaining) {
+            tooLarge(ctx);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * The handler of an aggregated request is only chosen once its body is read, so its limit is the largest one among
+     * the aggregated handlers of its method and path that may handle it. Handlers without a limit of their own take the
+     * one of the server.
+     */
+    private long maxContentLength(Router router, HttpRequest head) {
+        final int query = head.uri().indexOf('?');
+        final String uri = query < 0 ? head.uri() : head.uri().substring(0, query);
+        final String method = head.method().name();
+        final List<Router.Route> routes = router.find(MatrixParameters.scan(uri).rawPath());
+
+        //a static route without a matcher is always chosen over the parameterized ones
+        boolean staticOnly = false;
+
+        for (Router.Route route : routes) {
+            staticOnly |= route.isStatic() && aggregated(route.handler(), method) && route.handler().matcher() == AlwaysAllowMatcher.MATCHER;
+        }
+
+        long limit = -1;
+
+        for (Router.Route route : routes) {
+            final RequestHandler handler = route.handler();
+
+            if (!aggregated(handler, method) || (staticOnly && !route.isStatic())) {
+                continue;
+            }
+
+            limit = Math.max(limit, handler.maxContentLength() != null ? handler.maxContentLength() : maxContentLength);
+        }
+
+        return limit >= 0 ? limit : maxContentLength;
+    }
+
+    private boolean aggregated(RequestHandler handler, String method) {
+        return !handler.isStreaming() && method.equals(handler.method());
+    }
+
+    private void stream(ChannelHandlerContext ctx, HttpRequest head, FullHttpRequest httpRequest, RequestDispatcher.RequestExecution execution) {
+        final Long limit = execution.handler().maxContentLength();
+
+        if (limit != null) {
+            remaining = limit;
+
+            if (HttpUtil.getContentLength(head, -1L) > remaining) {
+                tooLarge(ctx);
+                return;
+            }
+        }
+
+        if (HttpUtil.is100ContinueExpected(head)) {
+            ctx.writeAndFlush(CONTINUE.retainedDuplicate());
+            head.headers().remove(HttpHeaderNames.EXPECT);
+        }
+
+        current = new BodyStream(ctx);
+        execution.request().bodyStream(current);
+
+        requestDispatcher.dispatch(httpRequest, ctx, execution);
+    }
+
+    private void tooLarge(ChannelHandlerContext ctx) {
+        if (current != null) {
+            current.fail(new TooLongFrameException("the body is larger than the limit of its handler"));
+            current = null;
+        }
+
+        reject(ctx, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    /**
+     * Answers, after the responses of any previous request, and closes the connection,
+     * since whatever is left of the request will not be read.
+     */
+    private void reject(ChannelHandlerContext ctx, HttpResponseStatus status) {
+        rejected = true;
+
+        final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+
+        final ResponseSequencer sequencer = ResponseSequencer.of(ctx);
+        sequencer.complete(sequencer.next(), () -> ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE));
+    }
+
+    private HttpResponseStatus failureStatus(Object msg, Throwable cause) {
+        if (!(cause instanceof TooLongFrameException) || !(msg instanceof HttpRequest)) {
+            return HttpResponseStatus.BAD_REQUEST;
+        }
+
+        //the codec only creates the request after reading its initial line, so a failed request without one is a too long line
+        return msg instanceof FullHttpRequest ? HttpResponseStatus.REQUEST_URI_TOO_LONG : HttpResponseStatus.REQUEST_HEADER_FIELDS_TOO_LARGE;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (current != null) {
+            current.fail(new ClosedChannelException());
+            current = null;
+        }
+
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,66 @@
+package org.geryon;
+
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.util.*;
+
+/**
+ * A read-only view of the headers of a request, over the Netty headers themselves, so nothing is copied.
+ * Names are looked up ignoring their case, as Netty does. A header sent more than once maps to its first value;
+ * all of them are returned by {@link #getAll(CharSequence)}.
+ * <p>
+ * Only iterating over the whole map, or asking its size, copies the headers, once, into a map of the first values.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class HeaderView extends AbstractMap<String, String> {
+    private final HttpHeaders headers;
+    private Map<String, String> entries;
+
+    HeaderView(HttpHeaders headers) {
+        this.headers = headers;
+    }
+
+    @Override
+    public String get(Object name) {
+        return name instanceof CharSequence ? headers.get((CharSequence) name) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof CharSequence && headers.contains((CharSequence) name);
+    }
+
+    List<String> getAll(CharSequence name) {
+        return headers.getAll(name);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return headers.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return entries().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return entries().entrySet();
+    }
+
+    private Map<String, String> entries() {
+        if (entries == null) {
+            final Map<String, String> entries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+            for (Entry<String, String> header : headers) {
+                entries.putIfAbsent(header.getKey(), header.getValue());
+            }
+
+            this.entries = Collections.unmodifiableMap(entries);
+        }
+
+        return entries;
+    }
+}
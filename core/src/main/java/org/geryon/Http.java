@@ -1,8 +1,11 @@
 package org.geryon;
 
+import io.netty.buffer.ByteBufAllocator;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -14,6 +17,21 @@ public class Http {
     private static String defaultContentType = "text/plain";
     private static Integer port;
     private static Integer eventLoopThreadNumber;
+    private static Integer bossThreadNumber;
+    private static Boolean reusePort;
+    private static Executor completionExecutor;
+    private static ByteBufAllocator allocator;
+    private static Integer maxContentLength;
+    private static Integer maxHeaderSize;
+    private static Integer maxInitialLineLength;
+    private static Integer maxChunkSize;
+    private static Boolean http2;
+    private static Tls tls;
+    private static Compression compression;
+    private static Boolean etags;
+    private static Boolean metrics;
+    private static String metricsPath;
+    private static Long probeInterval;
     private static HttpServer httpServer;
     private static Map<String, String> defaultHeaders = new HashMap<>();
 
@@ -21,9 +39,27 @@ public class Http {
     }
 
     private static void init() {
-        int port = Http.port == null ? 8080 : Http.port;
-        int eventLoopThreadNumber = Http.eventLoopThreadNumber == null ? 1 : Http.eventLoopThreadNumber;
-        httpServer = new HttpServer(port, eventLoopThreadNumber);
+        final HttpServer.Builder builder = new HttpServer.Builder();
+
+        if (port != null) builder.port(port);
+        if (bossThreadNumber != null) builder.bossThreadNumber(bossThreadNumber);
+        if (eventLoopThreadNumber != null) builder.eventLoopThreadNumber(eventLoopThreadNumber);
+        if (reusePort != null) builder.reusePort(reusePort);
+        if (completionExecutor != null) builder.completionExecutor(completionExecutor);
+        if (allocator != null) builder.allocator(allocator);
+        if (maxContentLength != null) builder.maxContentLength(maxContentLength);
+        if (maxHeaderSize != null) builder.maxHeaderSize(maxHeaderSize);
+        if (maxInitialLineLength != null) builder.maxInitialLineLength(maxInitialLineLength);
+        if (maxChunkSize != null) builder.maxChunkSize(maxChunkSize);
+        if (http2 != null) builder.http2(http2);
+        if (tls != null) builder.tls(tls);
+        if (compression != null) builder.compression(compression);
+        if (etags != null) builder.etags(etags);
+        if (metrics != null) builder.metrics(metrics);
+        if (metricsPath != null) builder.metricsPath(metricsPath);
+        if (probeInterval != null) builder.probeInterval(probeInterval);
+
+        httpServer = builder.build();
         httpServer.start();
     }
 
@@ -97,9 +133,143 @@ public class Http {
 
     public static void handle(String path, String produces, String method, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
         if (httpServer == null) init();
+
         addHandler(new RequestHandler(method, path, produces, handler, matcher, Http.defaultHeaders));
     }
 
+    public static void getSync(String path, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "GET", null, handler);
+    }
+
+    public static void getSync(String path, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "GET", matcher, handler);
+    }
+
+    public static void getSync(String path, String produces, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, produces, "GET", matcher, handler);
+    }
+
+    public static void postSync(String path, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "POST", null, handler);
+    }
+
+    public static void postSync(String path, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "POST", matcher, handler);
+    }
+
+    public static void postSync(String path, String produces, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, produces, "POST", matcher, handler);
+    }
+
+    public static void putSync(String path, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "PUT", null, handler);
+    }
+
+    public static void putSync(String path, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "PUT", matcher, handler);
+    }
+
+    public static void putSync(String path, String produces, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, produces, "PUT", matcher, handler);
+    }
+
+    public static void patchSync(String path, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "PATCH", null, handler);
+    }
+
+    public static void patchSync(String path, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "PATCH", matcher, handler);
+    }
+
+    public static void patchSync(String path, String produces, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, produces, "PATCH", matcher, handler);
+    }
+
+    public static void deleteSync(String path, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "DELETE", null, handler);
+    }
+
+    public static void deleteSync(String path, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, defaultContentType, "DELETE", matcher, handler);
+    }
+
+    public static void deleteSync(String path, String produces, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        handleSync(path, produces, "DELETE", matcher, handler);
+    }
+
+    /**
+     * Registers a handler that runs inline, on the event loop, without any future involved: its result is written right away.
+     * Meant for handlers that are cheap and never block, such as health checks or cache hits.
+     */
+    public static void handleSync(String path, String produces, String method, Function<Request, Boolean> matcher, Function<Request, ?> handler) {
+        if (httpServer == null) init();
+
+        addHandler(RequestHandler.sync(method, path, produces, handler, matcher, Http.defaultHeaders));
+    }
+
+    public static void postStream(String path, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "POST", null, handler);
+    }
+
+    public static void postStream(String path, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "POST", matcher, handler);
+    }
+
+    public static void postStream(String path, String produces, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, produces, "POST", matcher, handler);
+    }
+
+    public static void putStream(String path, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "PUT", null, handler);
+    }
+
+    public static void putStream(String path, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "PUT", matcher, handler);
+    }
+
+    public static void putStream(String path, String produces, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, produces, "PUT", matcher, handler);
+    }
+
+    public static void patchStream(String path, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "PATCH", null, handler);
+    }
+
+    public static void patchStream(String path, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, defaultContentType, "PATCH", matcher, handler);
+    }
+
+    public static void patchStream(String path, String produces, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        handleStream(path, produces, "PATCH", matcher, handler);
+    }
+
+    /**
+     * Registers a handler whose request body is delivered in chunks, through {@link Request#bodyStream()},
+     * instead of being aggregated in memory. Meant for large uploads.
+     */
+    public static void handleStream(String path, String produces, String method, Function<Request, Boolean> matcher, Function<Request, CompletableFuture<?>> handler) {
+        if (httpServer == null) init();
+
+        addHandler(RequestHandler.streaming(method, path, produces, handler, matcher, Http.defaultHeaders));
+    }
+
+    /**
+     * Overrides the body size limit of the handlers registered for the method and path, e.g. to accept large uploads
+     * on a single route. Requests over it are rejected with 413 before their body is buffered.
+     */
+    public static void maxContentLength(String method, String path, long maxContentLength) {
+        RequestHandlers.route(method, path).forEach(h -> h.maxContentLength(maxContentLength));
+    }
+
+    /**
+     * Caches the responses of the handlers registered for the method and path.
+     *
+     * @see RequestHandler#cache(ResponseCache)
+     */
+    public static void cache(String method, String path, ResponseCache cache) {
+        RequestHandlers.route(method, path).forEach(h -> h.cache(cache));
+    }
+
     public static Response ok(String body) {
         return response().httpStatus(200).body(body).build();
     }
@@ -144,6 +314,10 @@ public class Http {
         return response().httpStatus(419).body(body).build();
     }
 
+    public static Response notModified() {
+        return response().httpStatus(304).build();
+    }
+
     public static Response internalServerError() {
         return response().httpStatus(500).build();
     }
@@ -176,6 +350,73 @@ public class Http {
         Http.eventLoopThreadNumber = eventLoopThreadNumber;
     }
 
+    public static void bossThreadNumber(Integer bossThreadNumber) {
+        Http.bossThreadNumber = bossThreadNumber;
+    }
+
+    public static void reusePort(Boolean reusePort) {
+        Http.reusePort = reusePort;
+    }
+
+    public static void completionExecutor(Executor completionExecutor) {
+        Http.completionExecutor = completionExecutor;
+    }
+
+    public static void allocator(ByteBufAllocator allocator) {
+        Http.allocator = allocator;
+    }
+
+    public static void maxContentLength(Integer maxContentLength) {
+        Http.maxContentLength = maxContentLength;
+    }
+
+    public static void maxHeaderSize(Integer maxHeaderSize) {
+        Http.maxHeaderSize = maxHeaderSize;
+    }
+
+    public static void maxInitialLineLength(Integer maxInitialLineLength) {
+        Http.maxInitialLineLength = maxInitialLineLength;
+    }
+
+    public static void maxChunkSize(Integer maxChunkSize) {
+        Http.maxChunkSize = maxChunkSize;
+    }
+
+    public static void http2(Boolean http2) {
+        Http.http2 = http2;
+    }
+
+    public static void tls(Tls tls) {
+        Http.tls = tls;
+    }
+
+    public static void compression(Compression compression) {
+        Http.compression = compression;
+    }
+
+    public static void etags(Boolean etags) {
+        Http.etags = etags;
+    }
+
+    public static void metrics(Boolean metrics) {
+        Http.metrics = metrics;
+    }
+
+    public static void metricsPath(String metricsPath) {
+        Http.metricsPath = metricsPath;
+    }
+
+    public static void probeInterval(Long probeInterval) {
+        Http.probeInterval = probeInterval;
+    }
+
+    /**
+     * @return the metrics of the running server, or null if it is not running or they are disabled
+     */
+    public static Metrics metrics() {
+        return httpServer == null ? null : httpServer.metrics();
+    }
+
     public static void stop(){
         httpServer.shutdown();
         httpServer = null;
@@ -204,4 +445,60 @@ public class Http {
     public static Integer eventLoopThreadNumber() {
         return eventLoopThreadNumber;
     }
+
+    public static Integer bossThreadNumber() {
+        return bossThreadNumber;
+    }
+
+    public static Boolean reusePort() {
+        return reusePort;
+    }
+
+    public static Executor completionExecutor() {
+        return completionExecutor;
+    }
+
+    public static ByteBufAllocator allocator() {
+        return allocator;
+    }
+
+    public static Integer maxContentLength() {
+        return maxContentLength;
+    }
+
+    public static Integer maxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public static Integer maxInitialLineLength() {
+        return maxInitialLineLength;
+    }
+
+    public static Integer maxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public static Boolean http2() {
+        return http2;
+    }
+
+    public static Tls tls() {
+        return tls;
+    }
+
+    public static Compression compression() {
+        return compression;
+    }
+
+    public static Boolean etags() {
+        return etags;
+    }
+
+    public static String metricsPath() {
+        return metricsPath;
+    }
+
+    public static Long probeInterval() {
+        return probeInterval;
+    }
 }
@@ -1,19 +1,35 @@
 package org.geryon;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.*;
+import io.netty.handler.logging.LogLevel;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-import static io.netty.buffer.Unpooled.copiedBuffer;
-
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
  */
@@ -22,71 +38,468 @@ public class HttpServer {
 
     private RequestDispatcher requestDispatcher;
     private ChannelFuture future;
-    private final EventLoopGroup masterGroup;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final boolean epoll;
     private Integer port;
+    private Integer bossThreadNumber;
     private Integer eventLoopThreadNumber;
+    private Boolean reusePort;
+    private ByteBufAllocator allocator;
+    private Integer maxContentLength;
+    private Integer maxHeaderSize;
+    private Integer maxInitialLineLength;
+    private Integer maxChunkSize;
+    private Boolean http2;
+    private Tls tls;
+    private Compression compression;
+    private Boolean etags;
+    private Metrics metrics;
+    private String metricsPath;
+    private Long probeInterval;
+    private TlsContext tlsContext;
+    private ScheduledExecutorService tlsReloader;
+    private final ChannelHandler http2Stream = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) throws Exception {
+            ch.pipeline().addLast("h2", new Http2ServerDowngrader());
+            http1(ch.pipeline());
+        }
+    };
 
     public HttpServer(Integer port, Integer eventLoopThreadNumber) {
-        this.eventLoopThreadNumber = eventLoopThreadNumber;
-        masterGroup = new NioEventLoopGroup(eventLoopThreadNumber);
-        this.port = port;
-        this.requestDispatcher = new RequestDispatcher();
+        this(new Builder().port(port).eventLoopThreadNumber(eventLoopThreadNumber));
+    }
+
+    private HttpServer(Builder builder) {
+        this.port = builder.port;
+        this.bossThreadNumber = builder.bossThreadNumber;
+        this.eventLoopThreadNumber = builder.eventLoopThreadNumber;
+        this.epoll = Epoll.isAvailable();
+        this.reusePort = builder.reusePort && epoll;
+        this.allocator = builder.allocator;
+        this.maxContentLength = builder.maxContentLength;
+        this.maxHeaderSize = builder.maxHeaderSize;
+        this.maxInitialLineLength = builder.maxInitialLineLength;
+        this.maxChunkSize = builder.maxChunkSize;
+        this.http2 = builder.http2;
+        this.tls = builder.tls;
+        this.compression = builder.compression;
+        this.etags = builder.etags;
+        this.metrics = builder.metrics || builder.metricsPath != null ? new Metrics() : null;
+        this.metricsPath = builder.metricsPath;
+        this.probeInterval = builder.probeInterval;
+
+        if (probeInterval <= 0) {
+            throw new IllegalArgumentException("the probe interval must be positive, but it was " + probeInterval);
+        }
+
+        if (builder.reusePort && !epoll) {
+            logger.warn("SO_REUSEPORT is only supported by the native epoll transport, which is not available. Binding a single acceptor");
+        }
+
+        if (epoll) {
+            bossGroup = new EpollEventLoopGroup(bossThreadNumber);
+            workerGroup = new EpollEventLoopGroup(eventLoopThreadNumber);
+        } else {
+            bossGroup = new NioEventLoopGroup(bossThreadNumber);
+            workerGroup = new NioEventLoopGroup(eventLoopThreadNumber);
+        }
+
+        if (metrics != null && Metrics.measurable(builder.completionExecutor)) {
+            metrics.executor("completion", builder.completionExecutor);
+        }
+
+        this.requestDispatcher = new RequestDispatcher(builder.completionExecutor, metrics, metricsPath);
     }
 
     public void start() {
-        logger.info("Starting server on port " + port);
-        logger.info("Event loop will run on " + eventLoopThreadNumber + " thread(s)");
+        logger.info("Starting server on port " + port + " using the " + (epoll ? "epoll" : "nio") + " transport");
+        logger.info("Boss event loop will run on " + bossThreadNumber + " thread(s)" + (reusePort ? ", with SO_REUSEPORT" : ""));
+        logger.info("Worker event loop will run on " + eventLoopThreadNumber + " thread(s)");
+        logger.info("Response compression is " + (compression != null ? "enabled, for bodies from " + compression.minSize() + " bytes" : "disabled"));
+        logger.info("Automatic ETags are " + (etags ? "enabled" : "disabled"));
+        logger.info("Metrics are " + (metrics == null ? "disabled" : "enabled" + (metricsPath != null ? ", served at " + metricsPath : "")));
 
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
 
+        if (metrics != null) {
+            metrics.eventLoops("boss", bossGroup, probeInterval);
+            metrics.eventLoops("worker", workerGroup, probeInterval);
+        }
+
         try {
-            final ServerBootstrap bootstrap = new ServerBootstrap().group(masterGroup)
-                                                                   .channel(NioServerSocketChannel.class)
+            if (tls != null) {
+                tlsContext = new TlsContext(tls, http2);
+
+                //off the event loops, since reading the files and building the context would stall their connections
+                if (tls.reloadInterval() > 0) {
+                    tlsReloader = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("geryon-tls-reload", true));
+                    tlsReloader.scheduleWithFixedDelay(tlsContext::reloadIfModified, tls.reloadInterval(), tls.reloadInterval(), TimeUnit.SECONDS);
+                }
+
+                logger.info("TLS is enabled, using the " + tlsContext.provider() + " provider");
+                logger.info("HTTP/2 is " + (tlsContext.alpn() ? "enabled (h2, through ALPN)" : "disabled"));
+            } else {
+                logger.info("HTTP/2 is " + (http2 ? "enabled (h2c)" : "disabled"));
+            }
+
+            final ServerBootstrap bootstrap = new ServerBootstrap().group(bossGroup, workerGroup)
+                                                                   .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
                                                                    .childHandler(new ChannelInitializer<SocketChannel>() {
                                                                        @Override
                                                                        public void initChannel(final SocketChannel ch) throws Exception {
-                                                                           ch.pipeline().addLast("codec", new HttpServerCodec());
-                                                                           ch.pipeline().addLast("aggregator", new HttpObjectAggregator(512 * 1024));
-                                                                           ch.pipeline().addLast("request", new ChannelInboundHandlerAdapter() {
-                                                                                 @Override
-                                                                                 public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-                                                                                     if (msg instanceof FullHttpRequest) {
-                                                                                         requestDispatcher.accept((FullHttpRequest) msg, ctx);
-                                                                                     } else {
-                                                                                         super.channelRead(ctx, msg);
-                                                                                     }
-                                                                                 }
-
-                                                                                 @Override
-                                                                                 public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-                                                                                     ctx.flush();
-                                                                                 }
-
-                                                                                 @Override
-                                                                                 public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-                                                                                     ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, copiedBuffer(cause
-                                                                                             .getMessage()
-                                                                                             .getBytes())));
-                                                                                 }
-                                                                             });
+                                                                           if (metrics != null) {
+                                                                               ch.pipeline().addLast("metrics", metrics.connectionHandler());
+                                                                           }
+
+                                                                           ch.pipeline().addLast("flush", new WriteSafeFlushConsolidationHandler());
+
+                                                                           if (tlsContext != null) {
+                                                                               ch.pipeline().addLast("tls", tlsContext.newHandler(ch.alloc()));
+
+                                                                               if (tlsContext.alpn()) {
+                                                                                   ch.pipeline().addLast("alpn", negotiation());
+                                                                                   return;
+                                                                               }
+                                                                           }
+
+                                                                           final HttpServerCodec codec = codec();
+
+                                                                           if (http2 && tlsContext == null) {
+                                                                               ch.pipeline().addLast("h2c", cleartextHttp2(codec));
+                                                                           } else {
+                                                                               ch.pipeline().addLast("codec", codec);
+                                                                           }
+
+                                                                           http1(ch.pipeline());
                                                                        }
                                                                    })
                                                                    .option(ChannelOption.SO_BACKLOG, 128)
-                                                                   .childOption(ChannelOption.SO_KEEPALIVE, true);
-            future = bootstrap.bind(port).sync();
+                                                                   .childOption(ChannelOption.SO_KEEPALIVE, true)
+                                                                   .childOption(ChannelOption.ALLOCATOR, allocator);
+
+            if (reusePort) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+
+                //every bind creates a server channel registered to the next boss thread, so all of them accept connections on the same port
+                for (int i = 0; i < bossThreadNumber; i++) {
+                    future = bootstrap.bind(port).sync();
+                }
+            } else {
+                future = bootstrap.bind(port).sync();
+            }
+
             logger.info("Netty server started");
         } catch (final InterruptedException e) {
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not load the TLS certificate", e);
+        }
+    }
+
+    private HttpServerCodec codec() {
+        return new HttpServerCodec(maxInitialLineLength, maxHeaderSize, maxChunkSize);
+    }
+
+    /**
+     * The handlers of an HTTP/1.1 connection, after its codec. HTTP/2 streams reuse them as well, after converting their frames.
+     */
+    private void http1(ChannelPipeline pipeline) {
+        if (compression != null) {
+            pipeline.addLast("compressor", new ResponseCompressor(compression));
         }
+
+        pipeline.addLast("conditional", new ConditionalResponses(etags));
+
+        pipeline.addLast("routing", new HeadRoutingHandler(requestDispatcher, maxContentLength));
+        pipeline.addLast("aggregator", new HttpObjectAggregator(aggregatorMaxContentLength()));
+        pipeline.addLast("chunked", new ChunkedWriteHandler());
+        pipeline.addLast("request", new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                if (msg instanceof FullHttpRequest) {
+                    requestDispatcher.accept((FullHttpRequest) msg, ctx);
+                } else {
+                    super.channelRead(ctx, msg);
+                }
+            }
+
+            @Override
+            public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+                ctx.flush();
+            }
+
+            @Override
+            public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+                ResponseSequencer.of(ctx).close();
+                super.channelInactive(ctx);
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, ByteBufUtil.writeUtf8(ctx.alloc(), String.valueOf(cause.getMessage()))));
+            }
+        });
+    }
+
+    /**
+     * Cleartext HTTP/2, either with prior knowledge (the connection starts with the HTTP/2 preface)
+     * or upgraded from HTTP/1.1 (Upgrade: h2c). Any other connection goes on as HTTP/1.1.
+     */
+    private ChannelHandler cleartextHttp2(HttpServerCodec codec) {
+        final Http2Codec http2Codec = http2Codec();
+
+        final HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(codec, protocol ->
+                AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol) ? new Http2ServerUpgradeCodec(http2Codec) : null, maxContentLength);
+
+        return new CleartextHttp2ServerUpgradeHandler(codec, upgradeHandler, priorKnowledge(http2Codec));
+    }
+
+    /**
+     * Installs the HTTP/2 codec once the bytes read along with the preface are forwarded to it. The codec replaces itself
+     * with the actual frame handlers as soon as it is added, so, if it were added in place of the prior knowledge detection,
+     * those bytes would skip the frame handlers.
+     */
+    private ChannelHandler priorKnowledge(Http2Codec http2Codec) {
+        return new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                ctx.pipeline().addAfter(ctx.name(), null, http2Codec);
+                ctx.fireChannelRead(msg);
+                ctx.pipeline().remove(this);
+            }
+        };
+    }
+
+    /**
+     * Sets the connection up once the TLS handshake agrees on h2 or http/1.1. Clients without ALPN get HTTP/1.1.
+     */
+    private ChannelHandler negotiation() {
+        return new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+            @Override
+            protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws Exception {
+                if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                    ctx.pipeline().addLast(http2Codec());
+                } else {
+                    ctx.pipeline().addLast("codec", codec());
+                    http1(ctx.pipeline());
+                }
+            }
+        };
+    }
+
+    /**
+     * Every HTTP/2 stream becomes a child channel, whose frames are converted to the HTTP/1.1 objects the handlers
+     * already work with, so each stream is dispatched as a request of its own, in parallel with the others.
+     */
+    private Http2Codec http2Codec() {
+        return new Http2CodecBuilder(true, http2Stream)
+                .initialSettings(Http2Settings.defaultSettings().maxHeaderListSize(maxHeaderSize))
+                .frameLogger(new Http2FrameLogger(LogLevel.DEBUG, HttpServer.class))
+                .build();
+    }
+
+    /**
+     * The aggregator must fit the largest body accepted by any aggregated handler. The limit of each request
+     * is enforced before it, by the {@link HeadRoutingHandler}.
+     */
+    private int aggregatorMaxContentLength() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(maxContentLength, RequestHandlers.router().maxContentLength()));
+    }
+
+    /**
+     * @return the metrics of the server, or null if they are disabled
+     */
+    public Metrics metrics() {
+        return metrics;
     }
 
     public void shutdown() {
+        if (tlsReloader != null) {
+            tlsReloader.shutdownNow();
+        }
+
         try {
             final long init = System.currentTimeMillis();
-            masterGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).get();
+            bossGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).get();
+            workerGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).get();
             logger.info("Netty server stopped in " + (System.currentTimeMillis() - init) + " ms");
         } catch (InterruptedException ignored) {
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    public static class Builder {
+        private Integer port = 8080;
+        private Integer bossThreadNumber = 1;
+        private Integer eventLoopThreadNumber = Runtime.getRuntime().availableProcessors() * 2;
+        private Boolean reusePort = false;
+        private Executor completionExecutor;
+        private ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        private Integer maxContentLength = 512 * 1024;
+        private Integer maxHeaderSize = 8192;
+        private Integer maxInitialLineLength = 4096;
+        private Integer maxChunkSize = 8192;
+        private Boolean http2 = false;
+        private Tls tls;
+        private Compression compression;
+        private Boolean etags = false;
+        private Boolean metrics = false;
+        private String metricsPath;
+        private Long probeInterval = 100L;
+
+        private Builder self = this;
+
+        public Builder port(Integer port) {
+            this.port = port;
+            return self;
+        }
+
+        /**
+         * Threads accepting connections. Unless {@link #reusePort(Boolean)} is enabled, only one of them is used.
+         */
+        public Builder bossThreadNumber(Integer bossThreadNumber) {
+            this.bossThreadNumber = bossThreadNumber;
+            return self;
+        }
+
+        /**
+         * Threads serving the accepted connections.
+         */
+        public Builder eventLoopThreadNumber(Integer eventLoopThreadNumber) {
+            this.eventLoopThreadNumber = eventLoopThreadNumber;
+            return self;
+        }
+
+        /**
+         * Binds one server socket per boss thread with SO_REUSEPORT, so the kernel balances new connections between them.
+         * Only available with the native epoll transport.
+         */
+        public Builder reusePort(Boolean reusePort) {
+            this.reusePort = reusePort;
+            return self;
+        }
+
+        /**
+         * Executor where the responses of the handlers are encoded and written, once their futures complete.
+         * By default, they are written by the event loop of the connection, which avoids a thread hop
+         * when the handler returns an already completed future.
+         */
+        public Builder completionExecutor(Executor completionExecutor) {
+            this.completionExecutor = completionExecutor;
+            return self;
+        }
+
+        /**
+         * Allocator of the connections' buffers, including the encoded response bodies.
+         * By default, Netty's default allocator is used: pooled, with direct buffers when available.
+         * E.g. {@code new PooledByteBufAllocator(false)} for pooled heap buffers, or {@code UnpooledByteBufAllocator.DEFAULT}.
+         */
+        public Builder allocator(ByteBufAllocator allocator) {
+            this.allocator = allocator;
+            return self;
+        }
+
+        /**
+         * Largest request body aggregated in memory. Larger requests are rejected with 413.
+         * Handlers can override it with {@link RequestHandler#maxContentLength(long)}; streaming handlers have no limit by default.
+         */
+        public Builder maxContentLength(Integer maxContentLength) {
+            this.maxContentLength = maxContentLength;
+            return self;
+        }
+
+        /**
+         * Largest size of all the request headers together. Larger requests are rejected with 431.
+         */
+        public Builder maxHeaderSize(Integer maxHeaderSize) {
+            this.maxHeaderSize = maxHeaderSize;
+            return self;
+        }
+
+        /**
+         * Largest request line (method, uri and version). Larger requests are rejected with 414.
+         */
+        public Builder maxInitialLineLength(Integer maxInitialLineLength) {
+            this.maxInitialLineLength = maxInitialLineLength;
+            return self;
+        }
+
+        /**
+         * Largest chunk of body the codec produces at once, which is also the largest chunk delivered to a {@link BodyStream}.
+         */
+        public Builder maxChunkSize(Integer maxChunkSize) {
+            this.maxChunkSize = maxChunkSize;
+            return self;
+        }
+
+        /**
+         * Enables HTTP/2 over cleartext (h2c), both with prior knowledge and through the HTTP/1.1 upgrade, or over TLS (h2).
+         * Every stream is dispatched as a request of its own, so handlers work the same way, with no changes.
+         */
+        public Builder http2(Boolean http2) {
+            this.http2 = http2;
+            return self;
+        }
+
+        /**
+         * Serves every connection over TLS. Along with {@link #http2(Boolean)}, h2 is negotiated through ALPN,
+         * which requires the OpenSSL provider (netty-tcnative) on Java 8.
+         */
+        public Builder tls(Tls tls) {
+            this.tls = tls;
+            return self;
+        }
+
+        /**
+         * Compresses the response bodies, as the clients accept. Disabled by default.
+         */
+        public Builder compression(Compression compression) {
+            this.compression = compression;
+            return self;
+        }
+
+        /**
+         * Adds a weak ETag, computed from the body, to the 200 responses without one, so clients can revalidate them
+         * with If-None-Match and get a 304 instead of the body. Disabled by default: responses are only answered with
+         * 304 if their handler sets an ETag or a Last-Modified.
+         */
+        public Builder etags(Boolean etags) {
+            this.etags = etags;
+            return self;
+        }
+
+        /**
+         * Measures every request, by route: responses by status, requests in flight and the latency of their phases,
+         * along with the saturation of the event loops, the connections and their bytes, and the queues of the executors.
+         * They are then read through {@link HttpServer#metrics()}. Disabled by default.
+         */
+        public Builder metrics(Boolean metrics) {
+            this.metrics = metrics;
+            return self;
+        }
+
+        /**
+         * Serves the metrics in the Prometheus text format, on GET requests to the given path, such as /metrics.
+         * It enables the metrics as well.
+         */
+        public Builder metricsPath(String metricsPath) {
+            this.metricsPath = metricsPath;
+            return self;
+        }
+
+        /**
+         * How often, in milliseconds, a probe task is submitted to each event loop, to measure how long tasks wait
+         * to run on it, when metrics are enabled. 100 ms by default.
+         */
+        public Builder probeInterval(Long probeInterval) {
+            this.probeInterval = probeInterval;
+            return self;
+        }
+
+        public HttpServer build() {
+            return new HttpServer(this);
+        }
+    }
+}
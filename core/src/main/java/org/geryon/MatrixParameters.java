@@ -0,0 +1,86 @@
+package org.geryon;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The path of a request split, in a single pass, into its raw path (the path without the matrix parameters,
+ * which is the one routed) and the matrix parameters of each of its segments, such as /users;active/42;fields=name.
+ * <p>
+ * A path without matrix parameters, as most are, is its own raw path: it is neither copied nor scanned twice.
+ * A parameter without a value (;active) has an empty one.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class MatrixParameters {
+    private final String rawPath;
+    private final Map<String, Map<String, String>> parameters;
+
+    private MatrixParameters(String rawPath, Map<String, Map<String, String>> parameters) {
+        this.rawPath = rawPath;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param path the path of the request, without its query string
+     */
+    static MatrixParameters scan(String path) {
+        if (path.indexOf(';') < 0) {
+            return new MatrixParameters(path, Collections.emptyMap());
+        }
+
+        final int length = path.length();
+        final StringBuilder rawPath = new StringBuilder(length);
+        final Map<String, Map<String, String>> parameters = new HashMap<>();
+
+        Map<String, String> segment = null;
+        int start = 0;
+        int equals = -1;
+
+        //every token ends at a / or a ;, and the end of the path works as one more /
+        for (int i = 0; i <= length; i++) {
+            final char c = i < length ? path.charAt(i) : '/';
+
+            if (c == '=' && segment != null && equals < 0) {
+                equals = i;
+                continue;
+            }
+
+            if (c != '/' && c != ';') {
+                continue;
+            }
+
+            if (segment == null) {
+                rawPath.append(path, start, i);
+
+                if (c == ';') {
+                    segment = parameters.computeIfAbsent(path.substring(start, i), name -> new HashMap<>());
+                }
+            } else if (i > start && equals != start) {
+                segment.put(path.substring(start, equals < 0 ? i : equals), equals < 0 ? "" : path.substring(equals + 1, i));
+            }
+
+            if (c == '/') {
+                if (i < length) rawPath.append('/');
+                segment = null;
+            }
+
+            start = i + 1;
+            equals = -1;
+        }
+
+        return new MatrixParameters(rawPath.toString(), parameters);
+    }
+
+    String rawPath() {
+        return rawPath;
+    }
+
+    /**
+     * @return the matrix parameters, by the segment they follow
+     */
+    Map<String, Map<String, String>> parameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,250 @@
+package org.geryon;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import org.HdrHistogram.Histogram;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The metrics of a server: its requests, by route, and how saturated its event loops, connections and executors are.
+ * They can be read through {@link #routes()}, {@link #eventLoops()} and the others, or scraped in the Prometheus
+ * text format, from {@link #prometheus()} or from the endpoint of the server, if it has one.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<RequestHandler, RouteMetrics> handlers = new ConcurrentHashMap<>();
+    private final RouteMetrics unmatched = new RouteMetrics("", "unmatched");
+    private final List<EventLoopMetrics> eventLoops = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Executor> executors = new ConcurrentSkipListMap<>();
+    private final ConnectionMetrics connections = new ConnectionMetrics();
+
+    Metrics() {
+        executors.put("common", ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The metrics of the route of the handler, by its method and path: the handlers of a route told apart by matchers
+     * share the same ones, since they would be exported with the same labels. Requests that matched no route (404 and 405)
+     * share the same ones as well.
+     */
+    RouteMetrics route(RequestHandler handler) {
+        if (handler.path() == null) {
+            return unmatched;
+        }
+
+        final RouteMetrics route = handlers.get(handler);
+        return route != null ? route : handlers.computeIfAbsent(handler, h -> routes.computeIfAbsent(h.method() + ' ' + h.path(), k -> new RouteMetrics(h.method(), h.path())));
+    }
+
+    public Collection<RouteMetrics> routes() {
+        final List<RouteMetrics> routes = new ArrayList<>(this.routes.values());
+        routes.add(unmatched);
+        return Collections.unmodifiableList(routes);
+    }
+
+    public Collection<EventLoopMetrics> eventLoops() {
+        return Collections.unmodifiableList(eventLoops);
+    }
+
+    /**
+     * @return the connections currently open
+     */
+    public long connections() {
+        return connections.open();
+    }
+
+    public long connectionsAccepted() {
+        return connections.accepted();
+    }
+
+    /**
+     * @return the bytes read from the connections, as they came through the socket
+     */
+    public long bytesRead() {
+        return connections.bytesRead();
+    }
+
+    public long bytesWritten() {
+        return connections.bytesWritten();
+    }
+
+    /**
+     * @return the tasks waiting in the queue of each executor measured, by name. The common pool, where
+     * {@link Http#supply(java.util.function.Supplier)} runs, is always there, as "common".
+     */
+    public Map<String, Long> executors() {
+        final Map<String, Long> executors = new TreeMap<>();
+        this.executors.forEach((name, executor) -> executors.put(name, queued(executor)));
+        return executors;
+    }
+
+    /**
+     * Measures the queue of an executor the handlers run on, such as the one given to
+     * {@link Http#supply(java.util.concurrent.ExecutorService, java.util.function.Supplier)}.
+     *
+     * @param executor a ThreadPoolExecutor or a ForkJoinPool, whose queues can be measured
+     */
+    public Metrics executor(String name, Executor executor) {
+        if (!measurable(executor)) {
+            throw new IllegalArgumentException("only the queues of a ThreadPoolExecutor or a ForkJoinPool can be measured, but it was a " + executor.getClass().getName());
+        }
+
+        executors.put(name, executor);
+        return this;
+    }
+
+    /**
+     * Measures every loop of the group, probing each one at the given interval.
+     */
+    void eventLoops(String group, EventLoopGroup loops, long probeInterval) {
+        int index = 0;
+
+        for (EventExecutor loop : loops) {
+            final EventLoopMetrics metrics = new EventLoopMetrics(group + "-" + index++, loop);
+            metrics.start(probeInterval);
+            eventLoops.add(metrics);
+        }
+    }
+
+    /**
+     * @return the handler counting the connections and their bytes, shared by all of them
+     */
+    ChannelHandler connectionHandler() {
+        return connections;
+    }
+
+    static boolean measurable(Executor executor) {
+        return executor instanceof ThreadPoolExecutor || executor instanceof ForkJoinPool;
+    }
+
+    private static long queued(Executor executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+
+        final ForkJoinPool pool = (ForkJoinPool) executor;
+        return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+    }
+
+    /**
+     * @return every metric, in the Prometheus text format (version 0.0.4)
+     */
+    public String prometheus() {
+        final StringBuilder out = new StringBuilder(4096);
+        final Collection<RouteMetrics> routes = routes();
+
+        header(out, "geryon_requests_total", "counter", "Responses written, by route and status.");
+        for (RouteMetrics route : routes) {
+            for (Map.Entry<Integer, Long> status : route.statuses().entrySet()) {
+                labels(out.append("geryon_requests_total"), route).append(",status=\"").append(status.getKey()).append("\"} ").append(status.getValue()).append('\n');
+            }
+        }
+
+        header(out, "geryon_requests_in_flight", "gauge", "Requests dispatched whose response is not written yet.");
+        for (RouteMetrics route : routes) {
+            labels(out.append("geryon_requests_in_flight"), route).append("} ").append(route.inFlight()).append('\n');
+        }
+
+        header(out, "geryon_request_phase_seconds", "summary",
+                "Time spent in each phase of a request: handler, until the response is ready, pipeline_wait, until the earlier responses of its connection are written, and write.");
+        for (RouteMetrics route : routes) {
+            summary(out, route, "handler", route.handlerLatency());
+            summary(out, route, "pipeline_wait", route.pipelineWaitLatency());
+            summary(out, route, "write", route.writeLatency());
+        }
+
+        header(out, "geryon_event_loop_pending_tasks", "gauge", "Tasks waiting to run on each event loop.");
+        for (EventLoopMetrics loop : eventLoops) {
+            loop(out.append("geryon_event_loop_pending_tasks"), loop).append("} ").append(loop.pendingTasks()).append('\n');
+        }
+
+        header(out, "geryon_event_loop_task_delay_seconds", "summary", "Time a probe task scheduled on each event loop waits, from the time it is due until it runs.");
+        for (EventLoopMetrics loop : eventLoops) {
+            final Histogram delay = loop.taskDelay();
+
+            for (double quantile : QUANTILES) {
+                loop(out.append("geryon_event_loop_task_delay_seconds"), loop).append(",quantile=\"").append(quantile).append("\"} ")
+                                                                               .append(seconds(delay.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+
+            loop(out.append("geryon_event_loop_task_delay_seconds_sum"), loop).append("} ").append(seconds(delay.getMean() * delay.getTotalCount())).append('\n');
+            loop(out.append("geryon_event_loop_task_delay_seconds_count"), loop).append("} ").append(delay.getTotalCount()).append('\n');
+        }
+
+        header(out, "geryon_connections", "gauge", "Connections currently open.");
+        out.append("geryon_connections ").append(connections()).append('\n');
+        header(out, "geryon_connections_total", "counter", "Connections accepted.");
+        out.append("geryon_connections_total ").append(connectionsAccepted()).append('\n');
+        header(out, "geryon_bytes_read_total", "counter", "Bytes read from the connections.");
+        out.append("geryon_bytes_read_total ").append(bytesRead()).append('\n');
+        header(out, "geryon_bytes_written_total", "counter", "Bytes written to the connections.");
+        out.append("geryon_bytes_written_total ").append(bytesWritten()).append('\n');
+
+        header(out, "geryon_executor_queued_tasks", "gauge", "Tasks waiting in the queue of each executor.");
+        for (Map.Entry<String, Long> executor : executors().entrySet()) {
+            out.append("geryon_executor_queued_tasks{executor=\"");
+            escape(out, executor.getKey());
+            out.append("\"} ").append(executor.getValue()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    static StringBuilder header(StringBuilder out, String name, String type, String help) {
+        return out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                  .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, RouteMetrics route, String phase, Histogram histogram) {
+        final String name = "geryon_request_phase_seconds";
+
+        for (double quantile : QUANTILES) {
+            labels(out.append(name), route).append(",phase=\"").append(phase).append("\",quantile=\"").append(quantile).append("\"} ")
+                                           .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+        }
+
+        labels(out.append(name).append("_sum"), route).append(",phase=\"").append(phase).append("\"} ")
+                                                        .append(seconds(histogram.getMean() * histogram.getTotalCount())).append('\n');
+        labels(out.append(name).append("_count"), route).append(",phase=\"").append(phase).append("\"} ")
+                                                          .append(histogram.getTotalCount()).append('\n');
+    }
+
+    private static StringBuilder labels(StringBuilder out, RouteMetrics route) {
+        out.append("{method=\"");
+        escape(out, route.method());
+        out.append("\",route=\"");
+        escape(out, route.path());
+        return out.append('"');
+    }
+
+    private static StringBuilder loop(StringBuilder out, EventLoopMetrics loop) {
+        out.append("{loop=\"");
+        escape(out, loop.name());
+        return out.append('"');
+    }
+
+    static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static double seconds(double micros) {
+        return micros / 1_000_000;
+    }
+}
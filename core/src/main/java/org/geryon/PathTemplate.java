@@ -0,0 +1,140 @@
+package org.geryon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of a handler path, such as /users/:id/orders/:orderId.
+ * It is built once, when the handler is created, and extracts the path parameters of a request
+ * from the start and end offsets of its segments, so no Pattern or Matcher is needed per request.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class PathTemplate {
+    private final String[] segments;
+    private final int[] parameterSegments;
+    private final String[] parameterNames;
+    private final boolean trailingSlash;
+
+    PathTemplate(String path) {
+        this.segments = path.split("/");
+        this.trailingSlash = path.endsWith("/");
+
+        final List<Integer> parameterSegments = new ArrayList<>();
+        final List<String> parameterNames = new ArrayList<>();
+
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].length() > 1 && segments[i].charAt(0) == ':') {
+                parameterSegments.add(i);
+                parameterNames.add(segments[i].substring(1));
+                segments[i] = null;
+            }
+        }
+
+        this.parameterSegments = parameterSegments.stream().mapToInt(Integer::intValue).toArray();
+        this.parameterNames = parameterNames.toArray(new String[0]);
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    boolean isParameter(int segment) {
+        return segments[segment] == null;
+    }
+
+    /**
+     * @return the static value of the segment, or null if it is a path parameter
+     */
+    String segment(int segment) {
+        return segments[segment];
+    }
+
+    boolean isStatic() {
+        return parameterSegments.length == 0;
+    }
+
+    boolean trailingSlash() {
+        return trailingSlash;
+    }
+
+    /**
+     * A path with a trailing slash only matches a template with one, and the other way around, except for a template
+     * ending with a path parameter: like the regex router did, it also matches the path with a trailing slash,
+     * which is left out of the parameter.
+     */
+    boolean matchesTrailingSlash(boolean pathTrailingSlash) {
+        return trailingSlash == pathTrailingSlash || (pathTrailingSlash && endsWithParameter());
+    }
+
+    private boolean endsWithParameter() {
+        return parameterSegments.length > 0 && parameterSegments[parameterSegments.length - 1] == segments.length - 1;
+    }
+
+    List<String> parameterNames() {
+        return Collections.unmodifiableList(Arrays.asList(parameterNames));
+    }
+
+    /**
+     * Binds the path parameters of an uri already known to match this template.
+     *
+     * @param bounds the segment offsets of the uri, as returned by {@link #segments(String)}
+     */
+    Map<String, String> parameters(String uri, int[] bounds) {
+        if (isStatic()) {
+            return null;
+        }
+
+        final Map<String, String> parameters = new HashMap<>();
+
+        for (int i = 0; i < parameterSegments.length; i++) {
+            final int segment = parameterSegments[i] * 2;
+            parameters.put(parameterNames[i], uri.substring(bounds[segment], bounds[segment + 1]));
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Splits the uri the same way {@code uri.split("/")} does (trailing empty segments are dropped),
+     * but only keeps the start and end offsets of each segment.
+     */
+    static int[] segments(String uri) {
+        int length = uri.length();
+
+        while (length > 0 && uri.charAt(length - 1) == '/') {
+            length--;
+        }
+
+        if (length == 0) {
+            return uri.isEmpty() ? new int[]{0, 0} : new int[0];
+        }
+
+        int count = 1;
+
+        for (int i = 0; i < length; i++) {
+            if (uri.charAt(i) == '/') count++;
+        }
+
+        final int[] bounds = new int[count * 2];
+        int start = 0;
+        int index = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (uri.charAt(i) == '/') {
+                bounds[index++] = start;
+                bounds[index++] = i;
+                start = i + 1;
+            }
+        }
+
+        bounds[index++] = start;
+        bounds[index] = length;
+
+        return bounds;
+    }
+}
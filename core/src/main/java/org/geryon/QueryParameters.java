@@ -0,0 +1,151 @@
+package org.geryon;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The query parameters of a request, decoded from its uri only when they are read.
+ * <p>
+ * Looking a single parameter up scans the query string in place, decoding just the value found. Anything that needs
+ * all of them, such as iterating over the map, decodes the whole query string, once, keeping every value of
+ * a repeated parameter. As a map, each parameter has its first value; all of them are returned by {@link #getAll(String)}.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class QueryParameters extends AbstractMap<String, String> {
+    private final String uri;
+    private final int start;
+    private final int end;
+    private Map<String, List<String>> parameters;
+    private Map<String, String> firstValues;
+
+    QueryParameters(String uri) {
+        final int query = uri.indexOf('?');
+        final int fragment = uri.indexOf('#', query + 1);
+
+        this.uri = uri;
+        this.start = query < 0 ? uri.length() : query + 1;
+        this.end = fragment < 0 ? uri.length() : fragment;
+    }
+
+    @Override
+    public String get(Object name) {
+        if (!(name instanceof String)) {
+            return null;
+        }
+
+        if (parameters != null) {
+            final List<String> values = parameters.get(name);
+            return values == null ? null : values.get(0);
+        }
+
+        for (int from = start; from < end; ) {
+            final int to = next(from);
+            final int equals = equals(from, to);
+
+            if (equals > from && nameIs((String) name, from, equals)) {
+                return equals < to ? decode(equals + 1, to) : "";
+            }
+
+            from = to + 1;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof String && get(name) != null;
+    }
+
+    /**
+     * @return every value of the parameter, in the order they came, or an empty list if there is none
+     */
+    List<String> getAll(String name) {
+        final List<String> values = parameters().get(name);
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return start >= end || parameters().isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return parameters().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (firstValues == null) {
+            final Map<String, String> firstValues = new LinkedHashMap<>();
+            parameters().forEach((name, values) -> firstValues.put(name, values.get(0)));
+            this.firstValues = Collections.unmodifiableMap(firstValues);
+        }
+
+        return firstValues.entrySet();
+    }
+
+    private Map<String, List<String>> parameters() {
+        if (parameters == null) {
+            final Map<String, List<String>> parameters = new LinkedHashMap<>();
+
+            for (int from = start; from < end; ) {
+                final int to = next(from);
+                final int equals = equals(from, to);
+
+                if (equals > from) {
+                    parameters.computeIfAbsent(decode(from, equals), name -> new ArrayList<>(1))
+                              .add(equals < to ? decode(equals + 1, to) : "");
+                }
+
+                from = to + 1;
+            }
+
+            this.parameters = parameters;
+        }
+
+        return parameters;
+    }
+
+    /**
+     * @return where the parameter starting at the given index ends: at the next &amp;, or at the end of the query string
+     */
+    private int next(int from) {
+        final int ampersand = uri.indexOf('&', from);
+        return ampersand < 0 || ampersand > end ? end : ampersand;
+    }
+
+    private int equals(int from, int to) {
+        final int equals = uri.indexOf('=', from);
+        return equals < 0 || equals > to ? to : equals;
+    }
+
+    /**
+     * Compares the name in place, unless it is encoded.
+     */
+    private boolean nameIs(String name, int from, int to) {
+        if (encoded(from, to)) {
+            return name.equals(decode(from, to));
+        }
+
+        return to - from == name.length() && uri.regionMatches(from, name, 0, name.length());
+    }
+
+    private boolean encoded(int from, int to) {
+        for (int i = from; i < to; i++) {
+            final char c = uri.charAt(i);
+            if (c == '%' || c == '+') return true;
+        }
+
+        return false;
+    }
+
+    private String decode(int from, int to) {
+        final String component = uri.substring(from, to);
+        return encoded(from, to) ? QueryStringDecoder.decodeComponent(component, StandardCharsets.UTF_8) : component;
+    }
+}
@@ -1,9 +1,16 @@
 package org.geryon;
 
-import java.util.HashMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
@@ -12,29 +19,35 @@ public class Request {
     private String url;
     private String rawPath;
     private String body;
+    private ByteBuf content;
     private String contentType;
     private String method;
-    private Map<String, String> headers;
-    private Map<String, String> queryParameters;
+    private HeaderView headers;
+    private QueryParameters queryParameters;
     private Map<String, String> pathParameters;
     private Map<String, Map<String, String>> matrixParameters;
+    private BodyStream bodyStream;
 
     Request(String url,
             String rawPath,
             String body,
+            ByteBuf content,
             String contentType,
             String method,
-            Map<String, String> headers,
-            Map<String, String> queryParameters,
-            Map<String, String> pathParameters) {
+            HeaderView headers,
+            QueryParameters queryParameters,
+            Map<String, String> pathParameters,
+            Map<String, Map<String, String>> matrixParameters) {
         this.url = url;
         this.rawPath = rawPath;
         this.body = body;
+        this.content = content;
         this.contentType = contentType;
         this.method = method;
         this.headers = headers;
         this.queryParameters = queryParameters;
         this.pathParameters = pathParameters;
+        this.matrixParameters = matrixParameters;
     }
 
     public String url() {
@@ -45,10 +58,56 @@ public class Request {
         return rawPath;
     }
 
+    /**
+     * The body, decoded on the first call with the charset of the Content-Type header (UTF-8 if there is none).
+     */
     public String body() {
+        if (body == null && content != null) {
+            body = content.toString(HttpUtil.getCharset(contentType, StandardCharsets.UTF_8));
+        }
+
         return body;
     }
 
+    /**
+     * A read-only view of the body, without any copy.
+     * It is only valid until the future returned by the handler completes, since the buffer is released afterwards.
+     */
+    public ByteBuf bodyAsByteBuf() {
+        return content == null ? null : content.asReadOnly();
+    }
+
+    /**
+     * A read-only view of the body. A body aggregated from several parts, which it usually is, is copied into a single buffer
+     * first: use {@link #bodyAsByteBuf()} to read it without any copy. Unless it was copied, it is only valid until the handler completes.
+     */
+    public ByteBuffer bodyAsByteBuffer() {
+        return content == null ? null : content.nioBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * A copy of the body, which can be kept after the handler completes.
+     */
+    public byte[] bodyAsBytes() {
+        if (content == null) {
+            return body == null ? null : body.getBytes(HttpUtil.getCharset(contentType, StandardCharsets.UTF_8));
+        }
+
+        return ByteBufUtil.getBytes(content);
+    }
+
+    /**
+     * The body, in chunks, for handlers registered as streaming. It is null for any other handler,
+     * since their bodies are already aggregated.
+     */
+    public BodyStream bodyStream() {
+        return bodyStream;
+    }
+
+    void bodyStream(BodyStream bodyStream) {
+        this.bodyStream = bodyStream;
+    }
+
     public String contentType() {
         return contentType;
     }
@@ -57,44 +116,129 @@ public class Request {
         return method;
     }
 
+    /**
+     * A read-only view of the headers, whose names are looked up ignoring their case.
+     * A header sent more than once maps to its first value: use {@link #headers(CharSequence)} for all of them.
+     */
     public Map<String, String> headers() {
         return headers;
     }
 
-    public Map<String, String> queryParameters() {
-        return queryParameters;
+    /**
+     * @return the first value of the header, or null if it was not sent
+     */
+    public String header(CharSequence name) {
+        return headers.get(name);
     }
 
-    public Map<String, String> pathParameters() {
-        return pathParameters;
+    /**
+     * @return every value of the header, in the order they were sent, or an empty list if it was not sent
+     */
+    public List<String> headers(CharSequence name) {
+        return headers.getAll(name);
     }
 
-    public Map<String, Map<String, String>> matrixParameters() {
-        if (matrixParameters == null) {
-            matrixParameters = new HashMap<>();
+    /**
+     * Whether the client accepts the given content coding (such as gzip) in its Accept-Encoding header,
+     * by name or through *, and not with q=0. Handlers can use it to serve precompressed bodies,
+     * which are sent as they are when the response has a Content-Encoding header.
+     */
+    public boolean acceptsEncoding(String encoding) {
+        final String acceptEncoding = header(HttpHeaderNames.ACCEPT_ENCODING);
 
-            final String[] split = url.split("/");
+        if (acceptEncoding == null) {
+            return false;
+        }
 
-            for (String s : split) {
-                if (!s.contains(";")) continue;
+        Float wildcard = null;
 
-                final String[] result = s.split(";");
+        for (String coding : acceptEncoding.split(",")) {
+            final int parameters = coding.indexOf(';');
+            final String name = (parameters < 0 ? coding : coding.substring(0, parameters)).trim();
+            final float q = parameters < 0 ? 1.0f : quality(coding.substring(parameters + 1));
 
-                final String path = result[0];
+            if (name.equalsIgnoreCase(encoding)) {
+                return q > 0;
+            }
+
+            if (name.equals("*")) {
+                wildcard = q;
+            }
+        }
+
+        return wildcard != null && wildcard > 0;
+    }
 
-                for (int i = 1; i < result.length; i++) {
-                    final String[] keyValue = result[i].split("=");
+    /**
+     * Whether the client already has the current representation, as its If-None-Match or If-Modified-Since tells,
+     * so a handler can answer with a 304 before building an expensive body.
+     *
+     * @param etag         the ETag of the current representation, or null if it has none
+     * @param lastModified when the current representation was last modified, or null if unknown
+     */
+    public boolean isNotModified(String etag, Instant lastModified) {
+        return ConditionalResponses.notModified(header(HttpHeaderNames.IF_NONE_MATCH), header(HttpHeaderNames.IF_MODIFIED_SINCE), etag,
+                lastModified == null ? null : Date.from(lastModified));
+    }
 
-                    final String key = keyValue[0];
-                    final String value = keyValue[1];
+    public boolean isNotModified(String etag) {
+        return isNotModified(etag, null);
+    }
 
-                    Map<String, String> params = matrixParameters.computeIfAbsent(path, k -> new HashMap<>());
+    private static float quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            final String[] keyValue = parameter.trim().split("=");
 
-                    params.put(key, value);
+            if (keyValue.length == 2 && keyValue[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Float.parseFloat(keyValue[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
                 }
             }
         }
 
+        return 1.0f;
+    }
+
+    /**
+     * The query parameters, decoded only when they are first read. A parameter sent more than once maps to its first value:
+     * use {@link #queryParameters(String)} for all of them.
+     */
+    public Map<String, String> queryParameters() {
+        return queryParameters;
+    }
+
+    /**
+     * @return the first value of the query parameter, or null if it was not sent. Unless the query parameters
+     * were already decoded, it only decodes the value found.
+     */
+    public String queryParameter(String name) {
+        return queryParameters.get(name);
+    }
+
+    /**
+     * @return every value of the query parameter, in the order they were sent, or an empty list if it was not sent
+     */
+    public List<String> queryParameters(String name) {
+        return queryParameters.getAll(name);
+    }
+
+    public Map<String, String> pathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * Binds the path parameters of another route, since the same request is evaluated against every route matching its path.
+     */
+    void pathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+    }
+
+    /**
+     * The matrix parameters, by the path segment they follow. A parameter without a value (;active) has an empty one.
+     */
+    public Map<String, Map<String, String>> matrixParameters() {
         return matrixParameters;
     }
 
@@ -102,11 +246,13 @@ public class Request {
         private String url;
         private String rawPath;
         private String body;
+        private ByteBuf content;
         private String contentType;
         private String method;
-        private Map<String, String> headers;
-        private Map<String, String> queryParameters;
+        private HeaderView headers;
+        private QueryParameters queryParameters;
         private Map<String, String> pathParameters;
+        private Map<String, Map<String, String>> matrixParameters;
 
         private Builder self = this;
 
@@ -130,17 +276,22 @@ public class Request {
             return self;
         }
 
+        Builder content(ByteBuf content) {
+            this.content = content;
+            return self;
+        }
+
         Builder method(String method) {
             this.method = method;
             return self;
         }
 
-        Builder headers(Map<String, String> headers) {
+        Builder headers(HeaderView headers) {
             this.headers = headers;
             return self;
         }
 
-        Builder queryParameters(Map<String, String> queryParameters) {
+        Builder queryParameters(QueryParameters queryParameters) {
             this.queryParameters = queryParameters;
             return self;
         }
@@ -150,8 +301,13 @@ public class Request {
             return self;
         }
 
+        Builder matrixParameters(Map<String, Map<String, String>> matrixParameters) {
+            this.matrixParameters = matrixParameters;
+            return self;
+        }
+
         Request build() {
-            return new Request(url, rawPath, body, contentType, method, headers, queryParameters, pathParameters);
+            return new Request(url, rawPath, body, content, contentType, method, headers, queryParameters, pathParameters, matrixParameters);
         }
     }
 }
@@ -1,62 +1,337 @@
 package org.geryon;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.EventLoop;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.stream.ChunkedStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
-import static io.netty.buffer.Unpooled.copiedBuffer;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
 
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
  */
 public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHandlerContext> {
-    private final List<RequestHandler> requestHandlers = RequestHandlers.requestHandlers();
+    private static final RequestHandler NOT_FOUND =
+            RequestHandler.sync("text/plain", r -> new Response.Builder().httpStatus(404).body("not found").build());
+
+    private static final RequestHandler METHOD_NOT_ALLOWED =
+            RequestHandler.sync("text/plain", r -> new Response.Builder().httpStatus(405).body("method not allowed").build());
+
+    private final Executor completionExecutor;
+    private final ConcurrentMap<EventLoop, Executor> eventLoopExecutors = new ConcurrentHashMap<>();
+    private final Metrics metrics;
+    private final RequestHandler metricsEndpoint;
+
+    public RequestDispatcher() {
+        this(null);
+    }
+
+    /**
+     * @param completionExecutor where the responses of the handlers are encoded and written.
+     *                           If null, the event loop of the connection is used.
+     */
+    public RequestDispatcher(Executor completionExecutor) {
+        this(completionExecutor, null, null);
+    }
+
+    /**
+     * @param metrics     where the requests are measured, or null if they are not
+     * @param metricsPath where the metrics are served, in the Prometheus text format, or null if they are not
+     */
+    RequestDispatcher(Executor completionExecutor, Metrics metrics, String metricsPath) {
+        this.completionExecutor = completionExecutor;
+        this.metrics = metrics;
+        this.metricsEndpoint = metricsPath == null ? null :
+                RequestHandler.sync("GET", metricsPath, "text/plain; version=0.0.4; charset=utf-8", r -> metrics.prometheus(), null, null);
+    }
 
     @Override
     public void accept(FullHttpRequest httpRequest, ChannelHandlerContext ctx) {
-        final RequestExecution execution = getHandler(httpRequest);
+        dispatch(httpRequest, ctx, getHandler(httpRequest));
+    }
+
+    void dispatch(FullHttpRequest httpRequest, ChannelHandlerContext ctx, RequestExecution execution) {
+        final ResponseSequencer sequencer = ResponseSequencer.of(ctx);
+        final int sequence = sequencer.next();
+        final CachedResponses cache = execution.handler.cachedResponses();
+
+        if (metrics != null) {
+            execution.route = metrics.route(execution.handler);
+            execution.started = System.nanoTime();
+            execution.route.started();
+        }
+
+        if (cache != null && !execution.handler.isStreaming() && cache.accepts(httpRequest)) {
+            dispatchCached(httpRequest, ctx, execution, cache, sequencer, sequence);
+        } else {
+            invoke(httpRequest, ctx, execution, null, sequencer, sequence);
+        }
+    }
+
+    /**
+     * Answers from the cache if the response is there. Otherwise, the handler is run, unless the same request is
+     * already running: then its response is waited for.
+     */
+    private void dispatchCached(FullHttpRequest httpRequest, ChannelHandlerContext ctx, RequestExecution execution,
+                                CachedResponses cache, ResponseSequencer sequencer, int sequence) {
+        final String key = cache.key(httpRequest, execution.request.rawPath());
+        final boolean keepAlive = HttpUtil.isKeepAlive(httpRequest);
+        final FullHttpResponse hit = cache.get(key, keepAlive);
+
+        if (hit != null) {
+            release(httpRequest, execution.request);
+            complete(sequencer, sequence, execution, write(execution, hit, ctx));
+            return;
+        }
+
+        final CompletableFuture<Boolean> load = cache.load(key);
+
+        if (load == null) {
+            invoke(httpRequest, ctx, execution, key, sequencer, sequence);
+            return;
+        }
+
+        load.thenAcceptAsync(cached -> {
+            final FullHttpResponse response = cached ? cache.get(key, keepAlive) : null;
+
+            //not cacheable, or already evicted: this request runs the handler by itself
+            if (response == null) {
+                invoke(httpRequest, ctx, execution, null, sequencer, sequence);
+                return;
+            }
+
+            release(httpRequest, execution.request);
+            complete(sequencer, sequence, execution, write(execution, response, ctx));
+        }, completionExecutor(ctx));
+    }
+
+    /**
+     * @param cacheKey the key the response is cached with, if this request is the one loading it, or null
+     */
+    private void invoke(FullHttpRequest httpRequest, ChannelHandlerContext ctx, RequestExecution execution, String cacheKey,
+                        ResponseSequencer sequencer, int sequence) {
+        final RequestHandler handler = execution.handler;
+
+        if (handler.isSync()) {
+            Object r = null;
+            Throwable e = null;
+
+            //errors as well: otherwise, the response would never be written, holding the ones of the next requests
+            try {
+                r = handler.syncFunc().apply(execution.request);
+            } catch (Throwable ex) {
+                e = ex;
+            }
+
+            complete(sequencer, sequence, execution, write(ctx, httpRequest, execution, r, e, cacheKey));
+            return;
+        }
+
+        CompletableFuture<?> future;
+
+        try {
+            future = handler.func().apply(execution.request);
+        } catch (Throwable e) {
+            //otherwise, the response would never be written, holding the ones of the next requests as well
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        future.whenCompleteAsync((r, e) -> complete(sequencer, sequence, execution, write(ctx, httpRequest, execution, r, e, cacheKey)), completionExecutor(ctx));
+    }
+
+    /**
+     * Hands the write of the response to the {@link ResponseSequencer} of the connection,
+     * measuring the phases of the request, if the server has metrics. The execution itself is the task of the sequencer
+     * and the listener of the write, so measuring a request allocates nothing.
+     */
+    private void complete(ResponseSequencer sequencer, int sequence, RequestExecution execution, ResponseWrite write) {
+        execution.write = write;
+
+        if (execution.route != null) {
+            execution.ready = System.nanoTime();
+            execution.route.handled(execution.ready - execution.started);
+        }
+
+        sequencer.complete(sequence, execution);
+    }
+
+    /**
+     * Encodes the result of the handler, or the response of the exception handler if it failed, and caches it,
+     * if this request is the one loading it.
+     */
+    private ResponseWrite write(ChannelHandlerContext ctx, FullHttpRequest httpRequest, RequestExecution execution, Object r, Throwable e, String cacheKey) {
         final RequestHandler handler = execution.handler;
+        FullHttpResponse loaded = null;
 
-        handler.func().apply(execution.request).thenAcceptAsync((r) -> {
-            FullHttpResponse response;
+        try {
+            if (e != null) {
+                return write(execution, exceptionResponse(ctx.alloc(), httpRequest, handler, execution.request, e), ctx);
+            }
 
-            if (r instanceof Response) {
-                response = standardResponse(httpRequest, handler, (Response) r);
+            if (r instanceof Response && ((Response) r).isStreamed()) {
+                return writeStreamed(ctx, httpRequest, execution, (Response) r);
+            }
+
+            loaded = r instanceof Response ? standardResponse(ctx.alloc(), httpRequest, handler, (Response) r) : rawResponse(ctx.alloc(), httpRequest, handler, r);
+            return write(execution, loaded, ctx);
+        } catch (Throwable ex) {
+            return write(execution, exceptionResponse(ctx.alloc(), httpRequest, handler, execution.request, ex), ctx);
+        } finally {
+            if (cacheKey != null) {
+                handler.cachedResponses().loaded(cacheKey, loaded);
+            }
+
+            release(httpRequest, execution.request);
+        }
+    }
+
+    /**
+     * Once the response is written, whatever the handler did not consume of a streamed body is dropped.
+     */
+    private void release(FullHttpRequest httpRequest, Request request) {
+        httpRequest.release();
+
+        if (request != null && request.bodyStream() != null) {
+            request.bodyStream().discard();
+        }
+    }
+
+    /**
+     * By default, the response is written by the event loop of the connection: inline, if the future was already completed
+     * by the handler (since we are still in the event loop), or as a task scheduled to it otherwise.
+     * The executor of each event loop is built once, and shared by all of its connections.
+     */
+    private Executor completionExecutor(ChannelHandlerContext ctx) {
+        if (completionExecutor != null) {
+            return completionExecutor;
+        }
+
+        final EventLoop eventLoop = ctx.channel().eventLoop();
+        final Executor executor = eventLoopExecutors.get(eventLoop);
+
+        return executor != null ? executor : eventLoopExecutors.computeIfAbsent(eventLoop, RequestDispatcher::eventLoopExecutor);
+    }
+
+    private static Executor eventLoopExecutor(EventLoop eventLoop) {
+        return command -> {
+            if (eventLoop.inEventLoop()) {
+                command.run();
             } else {
-                response = rawResponse(httpRequest, handler, r);
+                eventLoop.execute(command);
             }
+        };
+    }
+
+    private ResponseWrite write(RequestExecution execution, FullHttpResponse response, ChannelHandlerContext ctx) {
+        execution.status = response.status().code();
+        return () -> ctx.writeAndFlush(response);
+    }
+
+    /**
+     * Writes the response headers first and then the body in parts: files as a FileRegion (zero-copy transfer, when written straight to a plain socket)
+     * and streams with chunked transfer encoding, through the ChunkedWriteHandler of the pipeline.
+     */
+    private ResponseWrite writeStreamed(ChannelHandlerContext ctx, FullHttpRequest httpRequest, RequestExecution execution, Response resp) throws IOException {
+        final HttpResponseStatus status = HttpResponseStatus.valueOf(resp.getHttpStatus());
+        final Object content = resp.getContent();
+        execution.status = resp.getHttpStatus();
+
+        if (content instanceof FileRegion || (content instanceof Path && zeroCopy(ctx))) {
+            final FileRegion region = content instanceof Path ? fileRegion((Path) content) : (FileRegion) content;
+            final HttpResponse response = new FileRegionResponse(status);
+
+            setHeaders(response, httpRequest, execution.handler, resp);
+            HttpUtil.setContentLength(response, region.count());
+
+            return () -> {
+                ctx.write(response);
+                ctx.write(region);
+                return ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            };
+        }
 
-            ctx.writeAndFlush(response);
-        }).exceptionally(e -> {
-            Throwable ex = (e instanceof CompletionException ? e.getCause() : e);
-            final BiFunction<Throwable, Request, Response> exceptionHandler = ExceptionHandlers.getHandler(ex.getClass());
-            final Response response = exceptionHandler.apply(ex, execution.request);
-            FullHttpResponse httpResponse = standardResponse(httpRequest, handler, response);
-            ctx.writeAndFlush(httpResponse);
-            return null;
-        }).thenRun(httpRequest::release);
+        final HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        final ChunkedInput<ByteBuf> input = chunkedInput(content);
+
+        setHeaders(response, httpRequest, execution.handler, resp);
+        HttpUtil.setTransferEncodingChunked(response, true);
+
+        return () -> {
+            ctx.write(response);
+            return ctx.writeAndFlush(new HttpChunkedInput(input));
+        };
     }
 
-    private FullHttpResponse rawResponse(FullHttpRequest httpRequest, RequestHandler handler, Object r) {
+    @SuppressWarnings("unchecked")
+    private ChunkedInput<ByteBuf> chunkedInput(Object content) throws IOException {
+        if (content instanceof InputStream) {
+            return new ChunkedStream((InputStream) content);
+        }
+
+        if (content instanceof Path) {
+            return new ChunkedNioFile(FileChannel.open((Path) content, StandardOpenOption.READ));
+        }
+
+        return (ChunkedInput<ByteBuf>) content;
+    }
+
+    /**
+     * A FileRegion can only be transferred straight to a socket: neither an HTTP/2 stream nor TLS, which has to encrypt it,
+     * can take it, so the file is read in chunks instead.
+     */
+    private boolean zeroCopy(ChannelHandlerContext ctx) {
+        return ctx.channel() instanceof SocketChannel && ctx.pipeline().get(SslHandler.class) == null;
+    }
+
+    private FileRegion fileRegion(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new DefaultFileRegion(channel, 0, channel.size());
+    }
+
+    private FullHttpResponse exceptionResponse(ByteBufAllocator alloc, FullHttpRequest httpRequest, RequestHandler handler, Request request, Throwable e) {
+        final Throwable ex = (e instanceof CompletionException ? e.getCause() : e);
+        final BiFunction<Throwable, Request, Response> exceptionHandler = ExceptionHandlers.getHandler(ex.getClass());
+        final Response response = exceptionHandler.apply(ex, request);
+        return standardResponse(alloc, httpRequest, handler, response);
+    }
+
+    FullHttpResponse rawResponse(ByteBufAllocator alloc, FullHttpRequest httpRequest, RequestHandler handler, Object r) {
         FullHttpResponse response;
-        String resp = null;
 
         if (r != null) {
-            resp = r.toString();
-            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, copiedBuffer(resp.getBytes()));
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, ByteBufUtil.writeUtf8(alloc, r.toString()));
         } else {
             response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT);
         }
@@ -66,7 +341,8 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
         }
 
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, handler.produces());
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, resp == null ? 0 : resp.length());
+        //the encoded size, not the char count, which differs as soon as the body has a multi-byte character
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
 
         if (handler.defaultHeaders() != null) {
             setHeaders(response, handler.defaultHeaders());
@@ -75,11 +351,45 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
         return response;
     }
 
-    private FullHttpResponse standardResponse(FullHttpRequest httpRequest, RequestHandler handler, Response resp) {
-        ByteBuf body = copiedBuffer(resp.getBody() == null ? new byte[]{} : resp.getBody().getBytes());
+    FullHttpResponse standardResponse(ByteBufAllocator alloc, FullHttpRequest httpRequest, RequestHandler handler, Response resp) {
+        ByteBuf body = content(alloc, resp);
         HttpResponseStatus status = HttpResponseStatus.valueOf(resp.getHttpStatus());
         FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, body);
 
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+        setHeaders(response, httpRequest, handler, resp);
+
+        //a 304 has no body: its Content-Type and Content-Length would be the ones of the body the client already has
+        if (status.code() == 304) {
+            response.headers().remove(HttpHeaderNames.CONTENT_TYPE).remove(HttpHeaderNames.CONTENT_LENGTH);
+        }
+
+        return response;
+    }
+
+    /**
+     * Binary bodies are wrapped, not copied. A ByteBuf body is released once the response is written.
+     * String bodies are encoded as UTF-8 straight into a buffer of the channel's allocator (pooled and direct, by default).
+     */
+    private ByteBuf content(ByteBufAllocator alloc, Response resp) {
+        final Object content = resp.getContent();
+
+        if (content instanceof ByteBuf) {
+            return (ByteBuf) content;
+        }
+
+        if (content instanceof byte[]) {
+            return wrappedBuffer((byte[]) content);
+        }
+
+        if (content instanceof ByteBuffer) {
+            return wrappedBuffer((ByteBuffer) content);
+        }
+
+        return resp.getBody() == null || resp.getBody().isEmpty() ? Unpooled.EMPTY_BUFFER : ByteBufUtil.writeUtf8(alloc, resp.getBody());
+    }
+
+    private void setHeaders(HttpResponse response, FullHttpRequest httpRequest, RequestHandler handler, Response resp) {
         if (HttpUtil.isKeepAlive(httpRequest)) {
             response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
@@ -87,9 +397,6 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
         String produces = resp.getContentType() != null ? resp.getContentType() : handler.produces();
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, produces);
 
-        int contentLength = resp.getBody() == null ? 0 : resp.getBody().length();
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
-
         if (handler.defaultHeaders() != null) {
             setHeaders(response, handler.defaultHeaders());
         }
@@ -97,83 +404,43 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
         if (resp.getHeaders() != null) {
             setHeaders(response, resp.getHeaders());
         }
-
-        return response;
     }
 
-
-    private void setHeaders(FullHttpResponse response, Map<String, String> headers) {
+    private void setHeaders(HttpResponse response, Map<String, String> headers) {
         headers.forEach((k, v) -> response.headers().set(k, v));
     }
 
-    class UrlMatrixParameterLazyEval {
-        private String rawPath;
-        private String uri;
-
-        public UrlMatrixParameterLazyEval(String uri) {
-            this.uri = uri;
-        }
-
-        public String rawPath() {
-            if (rawPath == null) {
-                rawPath = uri.replaceAll(";(.)+/", "/").replaceAll(";(.)+", "");
-            }
-
-            return rawPath;
-        }
-    }
-
     public RequestExecution getHandler(FullHttpRequest httpRequest) {
-        final String uri = httpRequest.uri().split("\\?")[0];
+        final int query = httpRequest.uri().indexOf('?');
+        final String uri = query < 0 ? httpRequest.uri() : httpRequest.uri().substring(0, query);
         final String method = httpRequest.method().name();
 
-        List<RequestExecution> candidates = null;
-
-        final UrlMatrixParameterLazyEval matrixParameterLazyEval = new UrlMatrixParameterLazyEval(uri);
-
-        for (RequestHandler handler : requestHandlers) {
-            if (handler.path().equals(uri) || handler.path().equals(matrixParameterLazyEval.rawPath())) {
-                final Request request = getRequest(httpRequest, uri, matrixParameterLazyEval.rawPath(), getHeaders(httpRequest), null);
-
-                if (!handler.matcher().apply(request)) {
-                    continue;
-                }
-
-                if (candidates == null) candidates = new ArrayList<>();
-                candidates.add(new RequestExecution(handler, request));
-                continue;
-            }
-
-            if (handler.path().split("/").length != uri.split("/").length) {
-                continue;
-            }
-
-            final List<String> wantedFields = handler.wantedPathParameters();
-
-            if (wantedFields.isEmpty()) {
-                continue;
-            }
+        if (metricsEndpoint != null && uri.equals(metricsEndpoint.path()) && "GET".equals(method)) {
+            return new RequestExecution(metricsEndpoint, null);
+        }
 
-            final Matcher m = Pattern.compile(handler.pathAsPattern()).matcher(uri);
+        List<RequestExecution> candidates = null;
 
-            if (!m.find() || !m.group().equals(uri)) {
-                continue;
-            }
+        final MatrixParameters matrixParameters = MatrixParameters.scan(uri);
+        Request request = null;
 
-            final Maps.MapBuilder<String, String> mapBuilder = Maps.newMap();
+        //the request is decoded once, for the first route, and only the path parameters of each other route are bound to it
+        for (Router.Route route : RequestHandlers.router().find(matrixParameters.rawPath())) {
+            final RequestHandler handler = route.handler();
 
-            for (int i = 1; i <= m.groupCount(); i++) {
-                mapBuilder.put(wantedFields.get(i - 1), m.group(i).replace("/", ""));
+            if (request == null) {
+                request = getRequest(httpRequest, uri, matrixParameters, getHeaders(httpRequest),
+                        new QueryParameters(httpRequest.uri()), route.pathParameters());
+            } else {
+                request.pathParameters(route.pathParameters());
             }
 
-            final Request request = getRequest(httpRequest, uri, matrixParameterLazyEval.rawPath(), getHeaders(httpRequest), mapBuilder.build());
-
             if (!handler.matcher().apply(request)) {
                 continue;
             }
 
             if (candidates == null) candidates = new ArrayList<>();
-            candidates.add(new RequestExecution(handler, request));
+            candidates.add(new RequestExecution(handler, request, false, route.isStatic(), route.pathParameters()));
         }
 
         if (candidates == null || candidates.isEmpty()) {
@@ -187,11 +454,11 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
 
             final boolean sameMethod = Objects.equals(handler.method(), method);
             if (!sameMethod && (mainCandidate == null || mainCandidate.handledInternally)) {
-                mainCandidate = new RequestExecution(methodNotAllowed(), candidate.request, true);
+                mainCandidate = new RequestExecution(methodNotAllowed(), candidate.request, true, false, candidate.pathParameters);
                 continue;
             }
 
-            if (sameMethod && (handler.path().equals(uri) || handler.path().equals(matrixParameterLazyEval.rawPath()))) {
+            if (sameMethod && candidate.staticRoute) {
                 mainCandidate = candidate;
                 continue;
             }
@@ -201,60 +468,116 @@ public class RequestDispatcher implements BiConsumer<FullHttpRequest, ChannelHan
             }
         }
 
+        mainCandidate.request.pathParameters(mainCandidate.pathParameters);
         return mainCandidate;
     }
 
     public RequestHandler notFoundHandler() {
-        return new RequestHandler("text/plain", r -> CompletableFuture.completedFuture(new Response.Builder().httpStatus(404)
-                                                                                                             .body("not found")
-                                                                                                             .build()));
+        return NOT_FOUND;
     }
 
     public RequestHandler methodNotAllowed() {
-        return new RequestHandler("text/plain", r -> CompletableFuture.completedFuture(new Response.Builder().httpStatus(405)
-                                                                                                             .body("method not allowed")
-                                                                                                             .build()));
+        return METHOD_NOT_ALLOWED;
     }
 
-    private Request getRequest(FullHttpRequest httpRequest, String uri, String rawPath, Map<String, String> headers, Map<String, String> pathParameters) {
-        return new Request.Builder().body(httpRequest.content().toString(Charset.forName("UTF-8")))
-                                    .contentType(headers.get("Content-Type"))
-                                    .rawPath(rawPath)
+    Request getRequest(FullHttpRequest httpRequest, String uri, MatrixParameters matrixParameters, HeaderView headers, QueryParameters queryParameters,
+                       Map<String, String> pathParameters) {
+        return new Request.Builder().content(httpRequest.content())
+                                    .contentType(headers.get(HttpHeaderNames.CONTENT_TYPE))
+                                    .rawPath(matrixParameters.rawPath())
+                                    .matrixParameters(matrixParameters.parameters())
                                     .headers(headers)
                                     .method(httpRequest.method().name())
                                     .pathParameters(pathParameters)
-                                    .queryParameters(new QueryStringDecoder(httpRequest.uri()).parameters()
-                                                                                              .entrySet()
-                                                                                              .stream()
-                                                                                              .collect(Collectors.toMap(Map.Entry::getKey, e -> e
-                                                                                                      .getValue()
-                                                                                                      .get(0))))
+                                    .queryParameters(queryParameters)
                                     .url(uri)
                                     .build();
     }
 
-    private Map<String, String> getHeaders(FullHttpRequest httpRequest) {
-        return httpRequest.headers()
-                          .entries()
-                          .stream()
-                          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    HeaderView getHeaders(FullHttpRequest httpRequest) {
+        return new HeaderView(httpRequest.headers());
+    }
+
+    /**
+     * The head of a response whose body follows as a {@link FileRegion}. Its bytes are transferred as they are,
+     * without going through the handlers of the pipeline, so they cannot be encoded on the way.
+     */
+    static class FileRegionResponse extends DefaultHttpResponse {
+        private FileRegionResponse(HttpResponseStatus status) {
+            super(HttpVersion.HTTP_1_1, status);
+        }
+    }
+
+    /**
+     * The write of a response, which is run by the {@link ResponseSequencer} of the connection,
+     * once the responses of the previous requests are written.
+     */
+    private interface ResponseWrite {
+        ChannelFuture write();
     }
 
-    private static class RequestExecution {
+    static class RequestExecution implements Runnable, ChannelFutureListener {
         private RequestHandler handler;
         private Request request;
         private Boolean handledInternally;
+        private Boolean staticRoute;
+        private Map<String, String> pathParameters;
+        private RouteMetrics route;
+        private long started;
+        private long ready;
+        private long writing;
+        private int status;
+        private ResponseWrite write;
 
         public RequestExecution(RequestHandler handler, Request request) {
-            this.handler = handler;
-            this.request = request;
-            this.handledInternally = false;
+            this(handler, request, false);
         }
 
         public RequestExecution(RequestHandler handler, Request request, Boolean handledInternally) {
+            this(handler, request, handledInternally, false);
+        }
+
+        public RequestExecution(RequestHandler handler, Request request, Boolean handledInternally, Boolean staticRoute) {
+            this(handler, request, handledInternally, staticRoute, null);
+        }
+
+        /**
+         * @param pathParameters the path parameters of the route, which are bound to the shared request once the execution is chosen
+         */
+        RequestExecution(RequestHandler handler, Request request, Boolean handledInternally, Boolean staticRoute, Map<String, String> pathParameters) {
             this.handler = handler;
             this.request = request;
             this.handledInternally = handledInternally;
+            this.staticRoute = staticRoute;
+            this.pathParameters = pathParameters;
+        }
+
+        RequestHandler handler() {
+            return handler;
+        }
+
+        Request request() {
+            return request;
+        }
+
+        /**
+         * Writes the response, once the sequencer gets to it.
+         */
+        @Override
+        public void run() {
+            if (route == null) {
+                write.write();
+                return;
+            }
+
+            writing = System.nanoTime();
+            route.waited(writing - ready);
+            write.write().addListener(this);
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            route.written(status, System.nanoTime() - writing);
         }
     }
 }
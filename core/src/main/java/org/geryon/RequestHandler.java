@@ -1,27 +1,27 @@
 package org.geryon;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
  */
 public class RequestHandler {
-    private static final Pattern PATTERN_PATH_PARAM = Pattern.compile("^?(:(.)+/|:(.)+)");
-
     private String method;
     private String path;
     private String produces;
     private Function<Request, CompletableFuture<?>> func;
+    private Function<Request, ?> syncFunc;
     private Function<Request, Boolean> matcher;
     private List<String> wantedPathParameters;
     private String pathAsPattern;
+    private PathTemplate template;
     private Map<String, String> defaultHeaders;
+    private boolean streaming;
+    private Long maxContentLength;
+    private CachedResponses cachedResponses;
 
     public RequestHandler(String produces, Function<Request, CompletableFuture<?>> func) {
         this.produces = produces;
@@ -30,16 +30,47 @@ public class RequestHandler {
     }
 
     public RequestHandler(String method, String path, String produces, Function<Request, CompletableFuture<?>> func, Function<Request, Boolean> matcher, Map<String, String> defaultHeaders) {
+        this(method, path, produces, func, null, matcher, defaultHeaders);
+    }
+
+    private RequestHandler(String method, String path, String produces, Function<Request, CompletableFuture<?>> func, Function<Request, ?> syncFunc, Function<Request, Boolean> matcher, Map<String, String> defaultHeaders) {
         this.method = method;
         this.path = path;
         this.produces = produces;
         this.func = func;
+        this.syncFunc = syncFunc;
         this.matcher = matcher == null ? AlwaysAllowMatcher.MATCHER : matcher;
-        this.wantedPathParameters = extractWantedPathParameters();
+        this.template = new PathTemplate(path);
+        this.wantedPathParameters = template.parameterNames();
         this.pathAsPattern = extractPathAsPattern();
         this.defaultHeaders = defaultHeaders;
     }
 
+    /**
+     * Creates a handler that runs inline, on the event loop, and whose result is written right away,
+     * without any future involved. It must not block.
+     */
+    public static RequestHandler sync(String method, String path, String produces, Function<Request, ?> func, Function<Request, Boolean> matcher, Map<String, String> defaultHeaders) {
+        return new RequestHandler(method, path, produces, null, func, matcher, defaultHeaders);
+    }
+
+    /**
+     * Creates a handler whose request body is not aggregated in memory: it is delivered in chunks,
+     * through {@link Request#bodyStream()}, while the handler runs.
+     * Its matcher, if any, is evaluated before the body is read, so the body is always empty there.
+     */
+    public static RequestHandler streaming(String method, String path, String produces, Function<Request, CompletableFuture<?>> func, Function<Request, Boolean> matcher, Map<String, String> defaultHeaders) {
+        final RequestHandler handler = new RequestHandler(method, path, produces, func, null, matcher, defaultHeaders);
+        handler.streaming = true;
+        return handler;
+    }
+
+    static RequestHandler sync(String produces, Function<Request, ?> func) {
+        final RequestHandler handler = new RequestHandler(produces, null);
+        handler.syncFunc = func;
+        return handler;
+    }
+
     public String method() {
         return method;
     }
@@ -56,6 +87,54 @@ public class RequestHandler {
         return func;
     }
 
+    public Function<Request, ?> syncFunc() {
+        return syncFunc;
+    }
+
+    public boolean isSync() {
+        return syncFunc != null;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @return the body size limit of this handler, or null if it uses the server one
+     * (or none at all, for streaming handlers)
+     */
+    public Long maxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * Overrides the body size limit for this handler, e.g. to accept large uploads on a single route.
+     * Requests over it are rejected with 413 before their body is buffered.
+     */
+    public RequestHandler maxContentLength(long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+        RequestHandlers.invalidate();
+        return this;
+    }
+
+    /**
+     * Caches the responses of this handler, which then runs once for each distinct request until its response expires.
+     * Meant for handlers whose response depends only on the request, not on when it is made or by whom.
+     * Ignored by streaming handlers.
+     */
+    public RequestHandler cache(ResponseCache cache) {
+        if (this.cachedResponses != null) {
+            this.cachedResponses.clear();
+        }
+
+        this.cachedResponses = new CachedResponses(cache);
+        return this;
+    }
+
+    CachedResponses cachedResponses() {
+        return cachedResponses;
+    }
+
     public Function<Request, Boolean> matcher() {
         return matcher;
     }
@@ -72,24 +151,8 @@ public class RequestHandler {
         return this.defaultHeaders;
     }
 
-    private List<String> extractWantedPathParameters() {
-        final Matcher matcher = PATTERN_PATH_PARAM.matcher(path);
-
-        List<String> fields = new ArrayList<>();
-
-        while (matcher.find()) {
-            String group;
-
-            if (matcher.group(1).contains("/")) {
-                group = matcher.group(1).substring(0, matcher.group(1).indexOf("/")).replace(":", "");
-            } else {
-                group = matcher.group(1).replace(":", "");
-            }
-
-            fields.add(group);
-        }
-
-        return fields;
+    PathTemplate template() {
+        return template;
     }
 
     private String extractPathAsPattern() {
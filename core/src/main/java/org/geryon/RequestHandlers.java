@@ -4,9 +4,9 @@ import org.geryon.exceptions.AmbiguousRoutingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * @author Gabriel Francisco <gabfssilva@gmail.com>
@@ -14,7 +14,8 @@ import java.util.Objects;
 public class RequestHandlers {
     private static final Logger logger = LoggerFactory.getLogger(HttpServer.class);
 
-    private static List<RequestHandler> requestHandlers = new ArrayList<>();
+    private static VersionedList<RequestHandler> requestHandlers = new VersionedList<>();
+    private static volatile Router router;
 
     private RequestHandlers() {
     }
@@ -23,6 +24,49 @@ public class RequestHandlers {
         return requestHandlers;
     }
 
+    /**
+     * @return the router compiled from the current handlers, compiling a new one if they were changed since the last call
+     */
+    static Router router() {
+        Router current = router;
+
+        if (current == null || current.version() != requestHandlers.version()) {
+            synchronized (RequestHandlers.class) {
+                current = router;
+
+                if (current == null || current.version() != requestHandlers.version()) {
+                    current = new Router(requestHandlers, requestHandlers.version());
+                    router = current;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Forces the router to be compiled again, for changes to the handlers that do not change the list itself.
+     */
+    static void invalidate() {
+        router = null;
+    }
+
+    /**
+     * @return the handlers registered for the method and path, one for each of their matchers
+     * @throws IllegalArgumentException if there is none
+     */
+    static List<RequestHandler> route(String method, String path) {
+        final List<RequestHandler> route = requestHandlers.stream()
+                                                          .filter(h -> Objects.equals(h.method(), method) && Objects.equals(h.path(), path))
+                                                          .collect(Collectors.toList());
+
+        if (route.isEmpty()) {
+            throw new IllegalArgumentException("there is no handler registered for " + method + " " + path);
+        }
+
+        return route;
+    }
+
     public static void addHandler(RequestHandler handler) {
         requestHandlers.forEach(r -> {
             if (!Objects.equals(r.method(), handler.method())) {
@@ -39,6 +83,7 @@ public class RequestHandlers {
         });
 
         requestHandlers.add(handler);
+        router();
 
         String logMessage = "Listening to " + handler.path() + " - " + handler.method();
 
@@ -1,5 +1,13 @@
 package org.geryon;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
+import io.netty.handler.stream.ChunkedInput;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -8,12 +16,18 @@ import java.util.Map;
  */
 public class Response {
     private String body;
+    private Object content;
     private int httpStatus;
     private Map<String, String> headers;
     private String contentType;
 
     public Response(String body, Integer httpStatus, Map<String, String> headers, String contentType) {
+        this(body, null, httpStatus, headers, contentType);
+    }
+
+    private Response(String body, Object content, Integer httpStatus, Map<String, String> headers, String contentType) {
         this.body = body;
+        this.content = content;
         this.httpStatus = httpStatus;
         this.headers = headers;
         this.contentType = contentType;
@@ -23,6 +37,21 @@ public class Response {
         return body;
     }
 
+    /**
+     * @return the binary or streamed body (byte[], ByteBuffer, ByteBuf, Path, FileRegion, InputStream or ChunkedInput),
+     * or null if the body is a String
+     */
+    public Object getContent() {
+        return content;
+    }
+
+    /**
+     * @return whether the body is written in parts, after the response headers, instead of in a single buffer
+     */
+    public boolean isStreamed() {
+        return content instanceof Path || content instanceof FileRegion || content instanceof InputStream || content instanceof ChunkedInput;
+    }
+
     public int getHttpStatus() {
         return httpStatus;
     }
@@ -42,6 +71,7 @@ public class Response {
 
     public static class Builder {
         private String body;
+        private Object content;
         private int httpStatus = 200;
         private Map<String, String> headers = new HashMap<>();
         private String contentType;
@@ -50,6 +80,53 @@ public class Response {
 
         public Builder body(String body) {
             this.body = body;
+            this.content = null;
+            return self;
+        }
+
+        public Builder body(byte[] body) {
+            return content(body);
+        }
+
+        public Builder body(ByteBuffer body) {
+            return content(body);
+        }
+
+        /**
+         * The buffer is written as is, without any copy, and released afterwards.
+         */
+        public Builder body(ByteBuf body) {
+            return content(body);
+        }
+
+        /**
+         * The file is sent with zero-copy transfer when the connection allows it.
+         */
+        public Builder body(Path body) {
+            return content(body);
+        }
+
+        public Builder body(FileRegion body) {
+            return content(body);
+        }
+
+        /**
+         * The stream is written with chunked transfer encoding, as it is read, and closed afterwards.
+         */
+        public Builder body(InputStream body) {
+            return content(body);
+        }
+
+        /**
+         * The input is written with chunked transfer encoding, as its chunks become available.
+         */
+        public Builder body(ChunkedInput<ByteBuf> body) {
+            return content(body);
+        }
+
+        private Builder content(Object content) {
+            this.content = content;
+            this.body = null;
             return self;
         }
 
@@ -64,6 +141,21 @@ public class Response {
             return self;
         }
 
+        /**
+         * The ETag of the body, quoted if it is not yet, e.g. etag("v42") or etag("W/\"v42\""). A client that already has it
+         * gets a 304 instead of the body.
+         */
+        public Builder etag(String etag) {
+            return header("ETag", ConditionalResponses.quoted(etag));
+        }
+
+        /**
+         * When the body was last modified. A client that has it since then gets a 304 instead of the body.
+         */
+        public Builder lastModified(Instant lastModified) {
+            return header("Last-Modified", ConditionalResponses.httpDate(lastModified));
+        }
+
         public Builder headers(Map<String, String> headers) {
             this.headers = headers;
             return self;
@@ -75,7 +167,7 @@ public class Response {
         }
 
         public Response build() {
-            return new Response(body, httpStatus, headers, contentType);
+            return new Response(body, content, httpStatus, headers, contentType);
         }
     }
 }
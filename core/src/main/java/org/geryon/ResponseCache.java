@@ -0,0 +1,84 @@
+package org.geryon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Caching of the responses of a route, set with {@link RequestHandler#cache(ResponseCache)}.
+ * <p>
+ * Responses are cached by method, raw path, query parameters (in any order) and the values of the Vary headers,
+ * so the handler runs once for each distinct request until its response expires or is evicted.
+ * Only 200 responses with a body in memory are cached: streamed bodies, errors, responses that set cookies
+ * and the ones with Cache-Control no-store or private always go through the handler.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class ResponseCache {
+    private final Long maxSize;
+    private final Long ttl;
+    private final List<String> vary;
+
+    private ResponseCache(Builder builder) {
+        if (builder.maxSize <= 0) {
+            throw new IllegalArgumentException("the max size of the cache must be positive, but it was " + builder.maxSize);
+        }
+
+        if (builder.ttl <= 0) {
+            throw new IllegalArgumentException("the ttl of the cache must be positive, but it was " + builder.ttl);
+        }
+
+        this.maxSize = builder.maxSize;
+        this.ttl = builder.ttl;
+        this.vary = Collections.unmodifiableList(builder.vary);
+    }
+
+    public Long maxSize() {
+        return maxSize;
+    }
+
+    public Long ttl() {
+        return ttl;
+    }
+
+    public List<String> vary() {
+        return vary;
+    }
+
+    public static class Builder {
+        private Long maxSize = 16L * 1024 * 1024;
+        private Long ttl = 60L;
+        private List<String> vary = Collections.emptyList();
+
+        private Builder self = this;
+
+        /**
+         * Bytes taken by the cached responses, bodies and headers. Once over it, the least recently used ones are evicted.
+         */
+        public Builder maxSize(Long maxSize) {
+            this.maxSize = maxSize;
+            return self;
+        }
+
+        /**
+         * Seconds a response is served from the cache, after the handler produced it.
+         */
+        public Builder ttl(Long ttl) {
+            this.ttl = ttl;
+            return self;
+        }
+
+        /**
+         * Request headers whose values are part of the key, such as Accept-Language: requests that differ in them
+         * get responses of their own.
+         */
+        public Builder vary(String... headers) {
+            this.vary = Arrays.asList(headers);
+            return self;
+        }
+
+        public ResponseCache build() {
+            return new ResponseCache(this);
+        }
+    }
+}
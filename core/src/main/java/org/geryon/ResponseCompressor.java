@@ -0,0 +1,69 @@
+package org.geryon;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+
+import java.util.List;
+
+/**
+ * Compresses the responses allowed by the {@link Compression} of the server, as the Accept-Encoding of their request asks.
+ * <p>
+ * Since the body of the same resource may then differ from client to client, every compressible response
+ * is sent with Vary: Accept-Encoding, so caches keep them apart.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class ResponseCompressor extends HttpContentCompressor {
+    private final Compression compression;
+
+    ResponseCompressor(Compression compression) {
+        super(compression.level());
+        this.compression = compression;
+    }
+
+    /**
+     * A 304 goes through without being encoded, but it still has to vary as the 200 it stands for.
+     */
+    @Override
+    protected void encode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpResponse && ((HttpResponse) msg).status().code() == 304) {
+            vary(((HttpResponse) msg).headers());
+        }
+
+        super.encode(ctx, msg, out);
+    }
+
+    @Override
+    protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+        final HttpHeaders headers = response.headers();
+
+        //already compressed by the handler: it goes as it is
+        if (headers.contains(HttpHeaderNames.CONTENT_ENCODING)) {
+            vary(headers);
+            return null;
+        }
+
+        if (!compression.compresses(headers.get(HttpHeaderNames.CONTENT_TYPE))) {
+            return null;
+        }
+
+        //a FileRegion is transferred as it is, from the disk
+        if (response instanceof RequestDispatcher.FileRegionResponse) {
+            return null;
+        }
+
+        if (response instanceof FullHttpResponse && ((FullHttpResponse) response).content().readableBytes() < compression.minSize()) {
+            return null;
+        }
+
+        vary(headers);
+
+        return super.beginEncode(response, acceptEncoding);
+    }
+
+    private void vary(HttpHeaders headers) {
+        if (!headers.containsValue(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING, true)) {
+            headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        }
+    }
+}
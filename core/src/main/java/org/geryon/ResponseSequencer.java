@@ -0,0 +1,91 @@
+package org.geryon;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the responses of a connection in the order of its requests, as HTTP/1.1 pipelining requires,
+ * no matter in which order the handlers complete.
+ * <p>
+ * Every request takes a sequence number when it is dispatched. Its response is written as soon as all the previous ones
+ * were, otherwise it waits for them. The state is only touched by the event loop of the connection,
+ * so there is no locking involved.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class ResponseSequencer {
+    private static final AttributeKey<ResponseSequencer> KEY = AttributeKey.valueOf(ResponseSequencer.class.getName());
+
+    private final EventLoop eventLoop;
+
+    private int nextSequence;
+    private int nextWrite;
+    private Map<Integer, Runnable> waiting;
+    private boolean closed;
+
+    private ResponseSequencer(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    static ResponseSequencer of(ChannelHandlerContext ctx) {
+        ResponseSequencer sequencer = ctx.channel().attr(KEY).get();
+
+        if (sequencer == null) {
+            sequencer = new ResponseSequencer(ctx.channel().eventLoop());
+            ctx.channel().attr(KEY).set(sequencer);
+        }
+
+        return sequencer;
+    }
+
+    /**
+     * Takes the sequence number of a request. It must be called by the event loop, in the order the requests are read.
+     */
+    int next() {
+        return nextSequence++;
+    }
+
+    /**
+     * Runs the write of the response of the given request, once the responses of all the previous ones are written.
+     */
+    void complete(int sequence, Runnable write) {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> complete(sequence, write));
+            return;
+        }
+
+        if (sequence != nextWrite && !closed) {
+            if (waiting == null) waiting = new HashMap<>();
+            waiting.put(sequence, write);
+            return;
+        }
+
+        write.run();
+        nextWrite++;
+
+        if (waiting == null) {
+            return;
+        }
+
+        for (Runnable next = waiting.remove(nextWrite); next != null; next = waiting.remove(nextWrite)) {
+            next.run();
+            nextWrite++;
+        }
+    }
+
+    /**
+     * Once the connection is closed, nothing waits anymore: the writes just fail, releasing their messages.
+     */
+    void close() {
+        closed = true;
+
+        if (waiting != null) {
+            waiting.values().forEach(Runnable::run);
+            waiting.clear();
+        }
+    }
+}
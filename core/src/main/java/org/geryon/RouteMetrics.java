@@ -0,0 +1,142 @@
+package org.geryon;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a route: the responses by status, the requests in flight and the latency of the phases of a request:
+ * <ul>
+ * <li>handler: from the dispatch of the request until its response is ready (for a cache hit, just the lookup);</li>
+ * <li>pipeline wait: from then on, until the response starts to be written, which only waits for the earlier responses
+ * of its connection, when the requests are pipelined;</li>
+ * <li>write: until the response is flushed to the connection.</li>
+ * </ul>
+ * The time a request waits before it is dispatched is not part of any phase: the task delay of the event loops
+ * (see {@link EventLoopMetrics}) tells how long the work of a connection waits to run.
+ * Latencies are recorded in microseconds, with two significant digits, up to an hour. Recording allocates nothing:
+ * counters are {@link LongAdder}s and histograms are HdrHistogram {@link Recorder}s, which are only read on snapshots.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class RouteMetrics {
+    private final String method;
+    private final String path;
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(600);
+    private final Latency handler = new Latency();
+    private final Latency pipelineWait = new Latency();
+    private final Latency write = new Latency();
+
+    RouteMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    /**
+     * @return the path template of the route, such as /users/:id
+     */
+    public String path() {
+        return path;
+    }
+
+    public long inFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @return the responses written, by status code
+     */
+    public Map<Integer, Long> statuses() {
+        final Map<Integer, Long> statuses = new TreeMap<>();
+
+        for (int status = 0; status < this.statuses.length(); status++) {
+            final LongAdder count = this.statuses.get(status);
+            if (count != null) statuses.put(status, count.sum());
+        }
+
+        return statuses;
+    }
+
+    public long requests() {
+        return statuses().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return the latencies of the handler phase since the server started, in microseconds
+     */
+    public Histogram handlerLatency() {
+        return handler.snapshot();
+    }
+
+    /**
+     * @return the time the responses waited for the earlier responses of their connection, in microseconds
+     */
+    public Histogram pipelineWaitLatency() {
+        return pipelineWait.snapshot();
+    }
+
+    public Histogram writeLatency() {
+        return write.snapshot();
+    }
+
+    void started() {
+        inFlight.increment();
+    }
+
+    void handled(long nanos) {
+        handler.record(nanos);
+    }
+
+    void waited(long nanos) {
+        pipelineWait.record(nanos);
+    }
+
+    void written(int status, long nanos) {
+        write.record(nanos);
+        inFlight.decrement();
+
+        if (status < 0 || status >= statuses.length()) {
+            return;
+        }
+
+        LongAdder count = statuses.get(status);
+
+        if (count == null) {
+            statuses.compareAndSet(status, null, new LongAdder());
+            count = statuses.get(status);
+        }
+
+        count.increment();
+    }
+
+    static class Latency {
+        private static final long HIGHEST = TimeUnit.HOURS.toMicros(1);
+
+        private final Recorder recorder = new Recorder(HIGHEST, 2);
+        private final Histogram total = new Histogram(HIGHEST, 2);
+        private Histogram interval;
+
+        void record(long nanos) {
+            recorder.recordValue(Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST)));
+        }
+
+        /**
+         * Adds what was recorded since the last snapshot to the total, returning a copy of it.
+         */
+        synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+    }
+}
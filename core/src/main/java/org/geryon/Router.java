@@ -0,0 +1,261 @@
+package org.geryon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix tree of the registered handlers, keyed on path segments.
+ * Every node has its static children plus, at most, one parameter child (:name), so finding the handlers
+ * of a path costs a walk over its segments, no matter how many routes were registered.
+ * <p>
+ * A router is immutable: whenever the handlers change, a new one is compiled (see {@link RequestHandlers#router()}).
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class Router {
+    private final Node root = new Node();
+    private final int version;
+    private boolean streaming;
+    private long maxContentLength = -1;
+
+    Router(List<RequestHandler> handlers, int version) {
+        this.version = version;
+
+        for (int i = 0; i < handlers.size(); i++) {
+            final RequestHandler handler = handlers.get(i);
+
+            insert(handler, i);
+            streaming |= handler.isStreaming();
+
+            if (handler.maxContentLength() != null && !handler.isStreaming()) {
+                maxContentLength = Math.max(maxContentLength, handler.maxContentLength());
+            }
+        }
+    }
+
+    int version() {
+        return version;
+    }
+
+    /**
+     * Whether requests must be routed as soon as their head is read: to stream their bodies, or to enforce a body limit
+     * set by their handler.
+     */
+    boolean routesOnHead() {
+        return streaming || maxContentLength >= 0;
+    }
+
+    boolean streams() {
+        return streaming;
+    }
+
+    /**
+     * @return the largest body limit set by an aggregated handler, or -1 if none of them sets one
+     */
+    long maxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * @param uri the raw path of the request: without the query string and the matrix parameters
+     * @return every route whose path matches the uri, in registration order. Trailing slashes are matched
+     * as {@link PathTemplate#matchesTrailingSlash(boolean)} says
+     */
+    List<Route> find(String uri) {
+        final int[] bounds = PathTemplate.segments(uri);
+        final List<Route> routes = new ArrayList<>(2);
+
+        collect(root, uri, bounds, 0, routes);
+
+        if (routes.size() > 1) {
+            routes.sort((r1, r2) -> Integer.compare(r1.entry.order, r2.entry.order));
+        }
+
+        return routes;
+    }
+
+    private void insert(RequestHandler handler, int order) {
+        final PathTemplate template = handler.template();
+
+        Node node = root;
+
+        for (int i = 0; i < template.segmentCount(); i++) {
+            node = template.isParameter(i) ? node.parameter() : node.child(template.segment(i));
+        }
+
+        node.add(new Entry(handler, order));
+    }
+
+    private void collect(Node node, String uri, int[] bounds, int index, List<Route> routes) {
+        if (index == bounds.length) {
+            Route previous = null;
+
+            for (Entry entry : node.entries) {
+                final PathTemplate template = entry.handler.template();
+
+                if (!template.matchesTrailingSlash(uri.endsWith("/"))) {
+                    continue;
+                }
+
+                //versions of the same route, told apart by their matchers, have the same parameters
+                final boolean samePath = previous != null && previous.entry.handler.path().equals(entry.handler.path());
+
+                previous = new Route(entry, samePath ? previous.pathParameters : template.parameters(uri, bounds));
+                routes.add(previous);
+            }
+
+            return;
+        }
+
+        final int start = bounds[index];
+        final int end = bounds[index + 1];
+
+        final Node child = node.find(uri, start, end);
+
+        if (child != null) {
+            collect(child, uri, bounds, index + 2, routes);
+        }
+
+        if (node.parameter != null && end > start) {
+            collect(node.parameter, uri, bounds, index + 2, routes);
+        }
+    }
+
+    static class Route {
+        private final Entry entry;
+        private final Map<String, String> pathParameters;
+
+        private Route(Entry entry, Map<String, String> pathParameters) {
+            this.entry = entry;
+            this.pathParameters = pathParameters;
+        }
+
+        RequestHandler handler() {
+            return entry.handler;
+        }
+
+        boolean isStatic() {
+            return entry.handler.template().isStatic();
+        }
+
+        Map<String, String> pathParameters() {
+            return pathParameters;
+        }
+    }
+
+    private static class Entry {
+        private final RequestHandler handler;
+        private final int order;
+
+        private Entry(RequestHandler handler, int order) {
+            this.handler = handler;
+            this.order = order;
+        }
+    }
+
+    private static class Node {
+        private String[] keys;
+        private Node[] children;
+        private int size;
+        private Node parameter;
+        private List<Entry> entries = Collections.emptyList();
+
+        private Node child(String segment) {
+            final Node existing = find(segment, 0, segment.length());
+
+            if (existing != null) {
+                return existing;
+            }
+
+            if (keys == null || (size + 1) * 2 > keys.length) {
+                resize();
+            }
+
+            final Node child = new Node();
+            put(segment, child);
+            size++;
+            return child;
+        }
+
+        private Node parameter() {
+            if (parameter == null) {
+                parameter = new Node();
+            }
+
+            return parameter;
+        }
+
+        private void add(Entry entry) {
+            if (entries.isEmpty()) {
+                entries = new ArrayList<>(1);
+            }
+
+            entries.add(entry);
+        }
+
+        /**
+         * Open addressing lookup of the region [start, end) of the uri, which avoids creating a substring for every segment.
+         */
+        private Node find(String uri, int start, int end) {
+            if (keys == null) {
+                return null;
+            }
+
+            final int length = end - start;
+            int hash = 0;
+
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + uri.charAt(i);
+            }
+
+            final int mask = keys.length - 1;
+
+            for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                final String key = keys[slot];
+
+                if (key.length() == length && key.regionMatches(0, uri, start, length)) {
+                    return children[slot];
+                }
+            }
+
+            return null;
+        }
+
+        private void put(String key, Node child) {
+            final int mask = keys.length - 1;
+            int slot = spread(key.hashCode()) & mask;
+
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            children[slot] = child;
+        }
+
+        private void resize() {
+            final String[] oldKeys = keys;
+            final Node[] oldChildren = children;
+            final int capacity = oldKeys == null ? 4 : oldKeys.length * 2;
+
+            keys = new String[capacity];
+            children = new Node[capacity];
+
+            if (oldKeys == null) {
+                return;
+            }
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.geryon;
+
+import io.netty.handler.ssl.SslProvider;
+
+import java.nio.file.Path;
+
+/**
+ * TLS configuration of the server: the certificate chain and private key, as PEM files, and how sessions are resumed.
+ * <p>
+ * The files are watched, so a renewed certificate is used by new connections without restarting the server.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+public class Tls {
+    private final Path certificateChain;
+    private final Path privateKey;
+    private final String keyPassword;
+    private final SslProvider provider;
+    private final Long sessionCacheSize;
+    private final Long sessionTimeout;
+    private final Long reloadInterval;
+
+    private Tls(Builder builder) {
+        if (builder.certificateChain == null || builder.privateKey == null) {
+            throw new IllegalArgumentException("TLS requires both a certificate chain and a private key");
+        }
+
+        this.certificateChain = builder.certificateChain;
+        this.privateKey = builder.privateKey;
+        this.keyPassword = builder.keyPassword;
+        this.provider = builder.provider;
+        this.sessionCacheSize = builder.sessionCacheSize;
+        this.sessionTimeout = builder.sessionTimeout;
+        this.reloadInterval = builder.reloadInterval;
+    }
+
+    public Path certificateChain() {
+        return certificateChain;
+    }
+
+    public Path privateKey() {
+        return privateKey;
+    }
+
+    public String keyPassword() {
+        return keyPassword;
+    }
+
+    public SslProvider provider() {
+        return provider;
+    }
+
+    public Long sessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public Long sessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public Long reloadInterval() {
+        return reloadInterval;
+    }
+
+    public static class Builder {
+        private Path certificateChain;
+        private Path privateKey;
+        private String keyPassword;
+        private SslProvider provider;
+        private Long sessionCacheSize = 20480L;
+        private Long sessionTimeout = 300L;
+        private Long reloadInterval = 60L;
+
+        private Builder self = this;
+
+        /**
+         * PEM file with the certificate of the server, followed by its intermediate certificates.
+         */
+        public Builder certificateChain(Path certificateChain) {
+            this.certificateChain = certificateChain;
+            return self;
+        }
+
+        /**
+         * PEM file with the PKCS#8 private key of the certificate.
+         */
+        public Builder privateKey(Path privateKey) {
+            this.privateKey = privateKey;
+            return self;
+        }
+
+        public Builder keyPassword(String keyPassword) {
+            this.keyPassword = keyPassword;
+            return self;
+        }
+
+        /**
+         * By default, OpenSSL (BoringSSL) is used when netty-tcnative is in the classpath, and the JDK implementation otherwise.
+         */
+        public Builder provider(SslProvider provider) {
+            this.provider = provider;
+            return self;
+        }
+
+        /**
+         * Sessions kept by the server, so returning clients resume them instead of doing a full handshake.
+         */
+        public Builder sessionCacheSize(Long sessionCacheSize) {
+            this.sessionCacheSize = sessionCacheSize;
+            return self;
+        }
+
+        /**
+         * Seconds a session can be resumed for, either from the cache or from a session ticket.
+         */
+        public Builder sessionTimeout(Long sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+            return self;
+        }
+
+        /**
+         * Seconds between the checks for changes in the PEM files. Zero disables the reloading.
+         */
+        public Builder reloadInterval(Long reloadInterval) {
+            this.reloadInterval = reloadInterval;
+            return self;
+        }
+
+        public Tls build() {
+            return new Tls(this);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.geryon;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+
+/**
+ * The {@link SslContext} of a server with {@link Tls}, rebuilt whenever its PEM files change.
+ * Connections take the current context when accepted, so the ones already open keep the certificate they started with.
+ * <p>
+ * With OpenSSL, the session ticket keys are generated once per server and kept across reloads,
+ * so clients still resume their sessions with the renewed certificate.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class TlsContext {
+    private static final Logger logger = LoggerFactory.getLogger(TlsContext.class);
+
+    private final Tls tls;
+    private final SslProvider provider;
+    private final boolean alpn;
+    private final OpenSslSessionTicketKey ticketKey;
+
+    private volatile SslContext sslContext;
+    private long lastModified;
+
+    /**
+     * @param http2 whether h2 is offered through ALPN, which is only possible if the provider supports it
+     */
+    TlsContext(Tls tls, boolean http2) throws IOException {
+        this.tls = tls;
+        this.provider = tls.provider() != null ? tls.provider() : (OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK);
+
+        //on Java 8, the JDK provider only supports ALPN with a boot classpath agent
+        this.alpn = http2 && provider != SslProvider.JDK && OpenSsl.isAlpnSupported();
+
+        this.ticketKey = provider == SslProvider.JDK ? null : newTicketKey();
+
+        if (http2 && !alpn) {
+            logger.warn("The " + provider + " TLS provider does not support ALPN, so HTTP/2 is not offered over TLS. Add netty-tcnative to the classpath to enable it");
+        }
+
+        this.lastModified = lastModified();
+        this.sslContext = build();
+    }
+
+    SslHandler newHandler(ByteBufAllocator alloc) {
+        return sslContext.newHandler(alloc);
+    }
+
+    SslProvider provider() {
+        return provider;
+    }
+
+    /**
+     * @return whether the connections negotiate their protocol (h2 or http/1.1) through ALPN
+     */
+    boolean alpn() {
+        return alpn;
+    }
+
+    /**
+     * Rebuilds the context if any of the PEM files changed since it was built. A context that fails to build,
+     * e.g. while the files are still being written, is logged and the current one is kept.
+     */
+    void reloadIfModified() {
+        try {
+            final long modified = lastModified();
+
+            if (modified == lastModified) {
+                return;
+            }
+
+            sslContext = build();
+            lastModified = modified;
+
+            logger.info("TLS certificate reloaded from " + tls.certificateChain());
+        } catch (Exception e) {
+            logger.warn("Could not reload the TLS certificate from " + tls.certificateChain() + ", the current one is kept", e);
+        }
+    }
+
+    private SslContext build() throws SSLException {
+        final SslContextBuilder builder = SslContextBuilder.forServer(tls.certificateChain().toFile(), tls.privateKey().toFile(), tls.keyPassword())
+                                                           .sslProvider(provider)
+                                                           .sessionCacheSize(tls.sessionCacheSize())
+                                                           .sessionTimeout(tls.sessionTimeout());
+
+        if (alpn) {
+            builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                   .applicationProtocolConfig(new ApplicationProtocolConfig(
+                           ApplicationProtocolConfig.Protocol.ALPN,
+                           ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                           ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                           ApplicationProtocolNames.HTTP_2,
+                           ApplicationProtocolNames.HTTP_1_1));
+        }
+
+        final SslContext context = builder.build();
+
+        if (ticketKey != null && context.sessionContext() instanceof OpenSslSessionContext) {
+            ((OpenSslSessionContext) context.sessionContext()).setTicketKeys(ticketKey);
+        }
+
+        return context;
+    }
+
+    private long lastModified() throws IOException {
+        return Math.max(Files.getLastModifiedTime(tls.certificateChain()).toMillis(), Files.getLastModifiedTime(tls.privateKey()).toMillis());
+    }
+
+    private static OpenSslSessionTicketKey newTicketKey() {
+        final SecureRandom random = new SecureRandom();
+
+        final byte[] name = new byte[OpenSslSessionTicketKey.NAME_SIZE];
+        final byte[] hmacKey = new byte[OpenSslSessionTicketKey.HMAC_KEY_SIZE];
+        final byte[] aesKey = new byte[OpenSslSessionTicketKey.AES_KEY_SIZE];
+
+        random.nextBytes(name);
+        random.nextBytes(hmacKey);
+        random.nextBytes(aesKey);
+
+        return new OpenSslSessionTicketKey(name, hmacKey, aesKey);
+    }
+}
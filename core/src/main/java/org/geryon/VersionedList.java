@@ -0,0 +1,17 @@
+package org.geryon;
+
+import java.util.ArrayList;
+
+/**
+ * An {@link ArrayList} that exposes its structural modification count, so structures derived from it
+ * (such as the {@link Router}) can tell when they are stale, even if the list was changed directly.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class VersionedList<E> extends ArrayList<E> {
+    private static final long serialVersionUID = 1L;
+
+    int version() {
+        return modCount;
+    }
+}
@@ -0,0 +1,24 @@
+package org.geryon;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * A {@link FlushConsolidationHandler} that does not flush in the middle of a write.
+ * <p>
+ * The channel becomes unwritable while a message is being written, and the consolidated flushes are then done right away,
+ * which makes the channel writable again: the ChunkedWriteHandler resumes and writes its next chunk before the codec
+ * is done writing the parts of the previous one, corrupting the chunked body. The flush is deferred to the event loop instead.
+ *
+ * @author Gabriel Francisco <gabfssilva@gmail.com>
+ */
+class WriteSafeFlushConsolidationHandler extends FlushConsolidationHandler {
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            ctx.executor().execute(ctx::flush);
+        }
+
+        ctx.fireChannelWritabilityChanged();
+    }
+}
@@ -0,0 +1,83 @@
+package org.geryon.features
+
+import io.kotlintest.Spec
+import io.kotlintest.matchers.shouldBe
+import io.kotlintest.specs.FeatureSpec
+import org.geryon.Compression
+import org.geryon.HttpServer
+import org.geryon.RequestHandler
+import org.geryon.RequestHandlers
+import org.geryon.Response
+import java.io.ByteArrayOutputStream
+import java.net.HttpURLConnection
+import java.net.URL
+import java.nio.file.Files
+import java.util.concurrent.CompletableFuture.completedFuture
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+private val json = "[" + (1..100).joinToString { "{\"id\": $it, \"name\": \"item $it\"}" } + "]"
+private val gzipped = ByteArrayOutputStream().also { out -> GZIPOutputStream(out).use { it.write("precompressed".toByteArray()) } }.toByteArray()
+private val file = Files.createTempFile("geryon-compression", ".txt").also { Files.write(it, json.toByteArray()) }
+
+class CompressionFeature : FeatureSpec({
+    feature("response compression") {
+        scenario("gzip negotiated from Accept-Encoding") {
+            val connection = get("/compression/json", "gzip")
+
+            connection.getHeaderField("Content-Encoding") shouldBe "gzip"
+            connection.getHeaderField("Vary") shouldBe "accept-encoding"
+            GZIPInputStream(connection.inputStream).readBytes().toString(Charsets.UTF_8) shouldBe json
+        }
+
+        scenario("sent as it is when the client does not accept any encoding, varying all the same") {
+            val connection = get("/compression/json", null)
+
+            connection.getHeaderField("Content-Encoding") shouldBe null
+            connection.getHeaderField("Vary") shouldBe "accept-encoding"
+            connection.inputStream.readBytes().toString(Charsets.UTF_8) shouldBe json
+        }
+
+        scenario("Content-Encoding set by the handler passed through") {
+            val connection = get("/compression/precompressed", "gzip")
+
+            connection.getHeaderField("Content-Encoding") shouldBe "gzip"
+            connection.getHeaderField("Vary") shouldBe "accept-encoding"
+            connection.inputStream.readBytes().toList() shouldBe gzipped.toList()
+        }
+
+        scenario("file sent with zero-copy as it is") {
+            val connection = get("/compression/file", "gzip")
+
+            connection.getHeaderField("Content-Encoding") shouldBe null
+            connection.inputStream.readBytes().toString(Charsets.UTF_8) shouldBe json
+        }
+    }
+}) {
+    override fun interceptSpec(context: Spec, spec: () -> Unit) {
+        RequestHandlers.addHandler(RequestHandler("GET", "/compression/json", "application/json", { completedFuture(json) }, null, emptyMap()))
+
+        RequestHandlers.addHandler(RequestHandler("GET", "/compression/precompressed", "text/plain", {
+            completedFuture(Response.Builder().header("Content-Encoding", "gzip").body(gzipped).build())
+        }, null, emptyMap()))
+
+        RequestHandlers.addHandler(RequestHandler("GET", "/compression/file", "text/plain", {
+            completedFuture(Response.Builder().body(file).build())
+        }, null, emptyMap()))
+
+        val server = HttpServer.Builder().port(8891).eventLoopThreadNumber(1).compression(Compression.Builder().build()).build()
+        server.start()
+
+        try {
+            spec()
+        } finally {
+            server.shutdown()
+        }
+    }
+}
+
+private fun get(path: String, acceptEncoding: String?): HttpURLConnection {
+    val connection = URL("http://localhost:8891$path").openConnection() as HttpURLConnection
+    if (acceptEncoding != null) connection.setRequestProperty("Accept-Encoding", acceptEncoding)
+    return connection
+}
@@ -5,6 +5,17 @@ import io.kotlintest.Spec
 import io.kotlintest.matchers.shouldBe
 import io.kotlintest.specs.FeatureSpec
 import org.geryon.Http.*
+import org.geryon.ResponseCache
+import java.io.ByteArrayInputStream
+import java.net.Socket
+import java.util.concurrent.CompletableFuture.completedFuture
+import java.util.concurrent.atomic.AtomicInteger
+
+private val cachedCalls = AtomicInteger()
+
+open class VersionException(message: String) : RuntimeException(message)
+class UnknownVersionException(message: String) : VersionException(message)
+class SyncException(message: String) : RuntimeException(message)
 
 class GetHttpFeature : FeatureSpec({
     feature("http get request") {
@@ -18,6 +29,150 @@ class GetHttpFeature : FeatureSpec({
             body shouldBe "hello, get"
         }
 
+        scenario("with repeated query parameter") {
+            val body = Unirest.get("http://localhost:8888/test/withRepeatedQueryParameter?id=1&id=2&name=get").asString().body
+            body shouldBe "hello, get, 1, [1, 2]"
+        }
+
+        scenario("with matrix parameters") {
+            val body = Unirest.get("http://localhost:8888/test/matrix;active/42;fields=name").asString().body
+            body shouldBe "hello, 42, name, "
+        }
+
+        scenario("with multi-byte utf-8 body") {
+            val response = Unirest.get("http://localhost:8888/test/utf8").asString()
+
+            response.body shouldBe "olá, 世界 🌍"
+            response.headers.getFirst("content-length") shouldBe "olá, 世界 🌍".toByteArray(Charsets.UTF_8).size.toString()
+        }
+
+        scenario("with multi-byte utf-8 custom response") {
+            val response = Unirest.get("http://localhost:8888/test/utf8/custom").asString()
+
+            response.status shouldBe 202
+            response.body shouldBe "ação ✓"
+            response.headers.getFirst("content-length") shouldBe "ação ✓".toByteArray(Charsets.UTF_8).size.toString()
+        }
+
+        scenario("keep-alive connection reused after multi-byte utf-8 bodies") {
+            for (i in 1..20) {
+                Unirest.get("http://localhost:8888/test/utf8").asString().body shouldBe "olá, 世界 🌍"
+                Unirest.get("http://localhost:8888/test/get").asString().body shouldBe "hello, get"
+            }
+        }
+
+        scenario("pipelined requests answered in order") {
+            Socket("localhost", 8888).use { socket ->
+                socket.soTimeout = 5000
+                socket.getOutputStream().write(("GET /test/slow HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                        "GET /test/fast HTTP/1.1\r\nHost: localhost\r\n\r\n").toByteArray())
+
+                val received = StringBuilder()
+                val buffer = ByteArray(4096)
+
+                while (!(received.contains("hello, slow") && received.contains("hello, fast"))) {
+                    val read = socket.getInputStream().read(buffer)
+                    if (read < 0) break
+                    received.append(String(buffer, 0, read))
+                }
+
+                (received.indexOf("hello, slow") < received.indexOf("hello, fast")) shouldBe true
+            }
+        }
+
+        scenario("keep-alive connection reused after streamed bodies larger than the write buffer") {
+            for (i in 1..20) {
+                Unirest.get("http://localhost:8888/test/stream").asBinary().body.readBytes().size shouldBe 100000
+                Unirest.get("http://localhost:8888/test/get").asString().body shouldBe "hello, get"
+            }
+        }
+
+        scenario("cached route answered without running the handler again") {
+            Unirest.get("http://localhost:8888/test/cached?a=1&b=2").asString().body shouldBe "cached, 1"
+            Unirest.get("http://localhost:8888/test/cached?b=2&a=1").asString().body shouldBe "cached, 1"
+            Unirest.get("http://localhost:8888/test/cached?a=2").asString().body shouldBe "cached, 2"
+            cachedCalls.get() shouldBe 2
+        }
+
+        scenario("conditional get answered with 304 when the client has the current version") {
+            Unirest.get("http://localhost:8888/test/versioned").asString().body shouldBe "hello, v1"
+            Unirest.get("http://localhost:8888/test/versioned").header("If-None-Match", "\"v1\"").asString().status shouldBe 304
+            Unirest.get("http://localhost:8888/test/versioned").header("If-None-Match", "\"v0\"").asString().status shouldBe 200
+        }
+
+        scenario("304 sent with the validators only, whether the handler or the server answers it") {
+            for (path in listOf("/test/versioned", "/test/tagged")) {
+                val response = Unirest.get("http://localhost:8888$path").header("If-None-Match", "\"v1\"").asString()
+
+                response.status shouldBe 304
+                response.headers.getFirst("ETag") shouldBe "\"v1\""
+                response.headers.getFirst("content-type") shouldBe null
+                response.headers.getFirst("content-length") shouldBe null
+            }
+        }
+
+        scenario("repeated headers read through the case-insensitive view") {
+            Socket("localhost", 8888).use { socket ->
+                socket.soTimeout = 5000
+                socket.getOutputStream().write(("GET /test/headers HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n" +
+                        "Accept: text/plain\r\naccept: application/json\r\nX-Version: 1\r\n\r\n").toByteArray())
+
+                //read until the body arrives, instead of until the server closes the connection
+                val response = StringBuilder()
+                val buffer = ByteArray(1024)
+                var read = 0
+
+                while (read >= 0 && !response.endsWith("text/plain, application/json; 1; 1")) {
+                    read = socket.getInputStream().read(buffer)
+                    if (read > 0) response.append(String(buffer, 0, read, Charsets.UTF_8))
+                }
+
+                response.endsWith("text/plain, application/json; 1; 1") shouldBe true
+            }
+        }
+
+        scenario("failure handled by the handler of the nearest exception class") {
+            val response = Unirest.get("http://localhost:8888/test/unknownVersion").asString()
+
+            response.status shouldBe 400
+            response.body shouldBe "unknown version: 3"
+        }
+
+        scenario("sync handler") {
+            val response = Unirest.get("http://localhost:8888/test/sync/get").asString()
+
+            response.status shouldBe 200
+            response.body shouldBe "hello, sync get"
+        }
+
+        scenario("sync handler failure handled by its exception handler") {
+            val response = Unirest.get("http://localhost:8888/test/sync/failing").asString()
+
+            response.status shouldBe 422
+            response.body shouldBe "sync: failed"
+        }
+
+        scenario("errors thrown by handlers answered without holding the next pipelined responses") {
+            Socket("localhost", 8888).use { socket ->
+                socket.soTimeout = 5000
+                socket.getOutputStream().write(("GET /test/erroring HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                        "GET /test/sync/erroring HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                        "GET /test/sync/get HTTP/1.1\r\nHost: localhost\r\n\r\n").toByteArray())
+
+                val response = StringBuilder()
+                val buffer = ByteArray(1024)
+                var read = 0
+
+                while (read >= 0 && !response.endsWith("hello, sync get")) {
+                    read = socket.getInputStream().read(buffer)
+                    if (read > 0) response.append(String(buffer, 0, read, Charsets.UTF_8))
+                }
+
+                Regex("HTTP/1.1 (\\d+)").findAll(response).map { it.groupValues[1] }.toList() shouldBe listOf("500", "500", "200")
+                response.endsWith("hello, sync get") shouldBe true
+            }
+        }
+
         scenario("success with matcher") {
             val response = Unirest.get("http://localhost:8888/test/withMatcher/versionTest").header("X-Version", "1").asString()
 
@@ -41,10 +196,82 @@ class GetHttpFeature : FeatureSpec({
             supply { "hello, ${it.pathParameters()["name"]}" }
         }
 
+        get("/test/utf8") {
+            supply { "olá, 世界 🌍" }
+        }
+
+        get("/test/utf8/custom") {
+            supply { accepted("ação ✓") }
+        }
+
+        get("/test/stream") {
+            supply { response().body(ByteArrayInputStream(ByteArray(100000))).build() }
+        }
+
+        get("/test/slow") {
+            supply {
+                Thread.sleep(300)
+                "hello, slow"
+            }
+        }
+
+        get("/test/cached") {
+            supply { "cached, ${it.queryParameters()["a"]}".also { cachedCalls.incrementAndGet() } }
+        }
+
+        cache("GET", "/test/cached", ResponseCache.Builder().build())
+
+        get("/test/versioned") {
+            if (it.isNotModified("v1")) completedFuture(response().httpStatus(304).etag("v1").build())
+            else supply { response().etag("v1").body("hello, v1").build() }
+        }
+
+        get("/test/tagged") {
+            supply { response().etag("v1").body("hello, v1").build() }
+        }
+
+        get("/test/headers") {
+            supply { "${it.headers("accept").joinToString()}; ${it.header("x-version")}; ${it.headers()["X-VERSION"]}" }
+        }
+
         get("/test/withQueryParameter") {
             supply { "hello, ${it.queryParameters()["queryParameterName"]}" }
         }
 
+        get("/test/withRepeatedQueryParameter") {
+            supply { "hello, ${it.queryParameter("name")}, ${it.queryParameters()["id"]}, ${it.queryParameters("id")}" }
+        }
+
+        get("/test/matrix/:id") {
+            val matrixParameters = it.matrixParameters()
+            supply { "hello, ${it.pathParameters()["id"]}, ${matrixParameters["42"]!!["fields"]}, ${matrixParameters["matrix"]!!["active"]}" }
+        }
+
+        handlerFor(VersionException::class.java) { e, _ -> internalServerError("version: ${e.message}") }
+        handlerFor(UnknownVersionException::class.java) { e, _ -> response().httpStatus(400).body("unknown version: ${e.message}").build() }
+
+        get("/test/unknownVersion") {
+            supply { throw UnknownVersionException("3") }
+        }
+
+        handlerFor(SyncException::class.java) { e, _ -> response().httpStatus(422).body("sync: ${e.message}").build() }
+
+        getSync("/test/sync/:name") {
+            "hello, sync ${it.pathParameters()["name"]}"
+        }
+
+        getSync("/test/sync/failing") {
+            throw SyncException("failed")
+        }
+
+        get("/test/erroring") {
+            throw AssertionError("broken")
+        }
+
+        getSync("/test/sync/erroring") {
+            throw AssertionError("broken")
+        }
+
         get("/test/withMatcher/versionTest", { it.headers()["X-Version"] == "1"}) {
             supply { accepted("accepted, with version X-Version = 1 ;)") }
         }
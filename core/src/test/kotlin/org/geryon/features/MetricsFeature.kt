@@ -0,0 +1,71 @@
+package org.geryon.features
+
+import com.mashape.unirest.http.Unirest
+import io.kotlintest.Spec
+import io.kotlintest.matchers.shouldBe
+import io.kotlintest.specs.FeatureSpec
+import org.geryon.HttpServer
+import org.geryon.RequestHandler
+import org.geryon.RequestHandlers
+import java.util.concurrent.CompletableFuture.completedFuture
+
+class MetricsFeature : FeatureSpec({
+    feature("metrics endpoint") {
+        scenario("requests counted by route, once for all the versions of a route") {
+            Unirest.get("http://localhost:8889/metrics/versioned").header("X-Version", "1").asString().body shouldBe "v1"
+            Unirest.get("http://localhost:8889/metrics/versioned").header("X-Version", "2").asString().body shouldBe "v2"
+
+            val response = Unirest.get("http://localhost:8889/metrics").asString()
+            val series = response.body.lines().filter { it.startsWith("geryon_requests_total{method=\"GET\",route=\"/metrics/versioned\"") }
+
+            response.status shouldBe 200
+            response.headers.getFirst("content-type") shouldBe "text/plain; version=0.0.4; charset=utf-8"
+            series shouldBe listOf("geryon_requests_total{method=\"GET\",route=\"/metrics/versioned\",status=\"200\"} 2")
+
+            for (phase in listOf("handler", "pipeline_wait", "write")) {
+                metric(response.body, "geryon_request_phase_seconds_count{method=\"GET\",route=\"/metrics/versioned\",phase=\"$phase\"} ") shouldBe 2.0
+            }
+        }
+
+        scenario("saturation of the connections, event loops and executors") {
+            val metrics = Unirest.get("http://localhost:8889/metrics").asString().body
+
+            (metric(metrics, "geryon_connections ") >= 1) shouldBe true
+            (metric(metrics, "geryon_connections_total ") >= 1) shouldBe true
+            (metric(metrics, "geryon_bytes_read_total ") > 0) shouldBe true
+            (metric(metrics, "geryon_bytes_written_total ") > 0) shouldBe true
+            (metric(metrics, "geryon_event_loop_pending_tasks{loop=\"boss-0\"} ") >= 0) shouldBe true
+            (metric(metrics, "geryon_event_loop_pending_tasks{loop=\"worker-0\"} ") >= 0) shouldBe true
+            (metric(metrics, "geryon_executor_queued_tasks{executor=\"common\"} ") >= 0) shouldBe true
+        }
+
+        scenario("event loop blocked past the time of its probe") {
+            Unirest.get("http://localhost:8889/metrics/blocking").asString().body shouldBe "blocked"
+
+            val metrics = Unirest.get("http://localhost:8889/metrics").asString().body
+
+            (metric(metrics, "geryon_event_loop_task_delay_seconds{loop=\"worker-0\",quantile=\"0.999\"} ") >= 0.2) shouldBe true
+        }
+    }
+}) {
+    override fun interceptSpec(context: Spec, spec: () -> Unit) {
+        for (version in listOf("1", "2")) {
+            RequestHandlers.addHandler(RequestHandler("GET", "/metrics/versioned", "text/plain",
+                    { completedFuture("v$version") }, { it.header("X-Version") == version }, emptyMap()))
+        }
+
+        //a sync handler runs on the event loop, which it blocks
+        RequestHandlers.addHandler(RequestHandler.sync("GET", "/metrics/blocking", "text/plain", { Thread.sleep(300); "blocked" }, null, null))
+
+        val server = HttpServer.Builder().port(8889).eventLoopThreadNumber(1).metricsPath("/metrics").probeInterval(10).build()
+        server.start()
+
+        try {
+            spec()
+        } finally {
+            server.shutdown()
+        }
+    }
+}
+
+private fun metric(metrics: String, series: String) = metrics.lines().first { it.startsWith(series) }.substringAfter(series).toDouble()
@@ -18,6 +18,14 @@ class PostHttpFeature : FeatureSpec({
             body shouldBe "hello, post"
         }
 
+        scenario("with multi-byte utf-8 body") {
+            val response = Unirest.post("http://localhost:8888/test/withBody").body("ünïcødé, 日本語").asString()
+
+            response.status shouldBe 202
+            response.body shouldBe "hello, ünïcødé, 日本語"
+            response.headers.getFirst("content-length") shouldBe "hello, ünïcødé, 日本語".toByteArray(Charsets.UTF_8).size.toString()
+        }
+
         scenario("with body") {
             val body = Unirest.post("http://localhost:8888/test/withBody").body("post").asString().body
             body shouldBe "hello, post"
@@ -38,6 +46,14 @@ class PostHttpFeature : FeatureSpec({
             response.body shouldBe "hello, post"
         }
 
+        scenario("sync handler with custom response") {
+            val response = Unirest.post("http://localhost:8888/test/sync").body("post").asString()
+
+            response.status shouldBe 201
+            response.headers["Location"]!![0] shouldBe "/test/sync/post"
+            response.body shouldBe "created, post"
+        }
+
         scenario("success with matcher") {
             val response = Unirest.post("http://localhost:8888/test/withMatcher/versionTest").header("X-Version", "1").body("post").asString()
 
@@ -51,6 +67,41 @@ class PostHttpFeature : FeatureSpec({
             response.status shouldBe 404 //since the matcher returned false
         }
 
+        scenario("with streamed body larger than the aggregation limit") {
+            val body = "0123456789".repeat(200_000)
+            val response = Unirest.post("http://localhost:8888/test/stream/upload").body(body).asString()
+
+            response.status shouldBe 200
+            response.body shouldBe "received ${body.length} bytes"
+        }
+
+        scenario("with matchers reading the body, next to a streaming route") {
+            Unirest.post("http://localhost:8888/test/byBody").body("one").asString().body shouldBe "first, one"
+            Unirest.post("http://localhost:8888/test/byBody").body("two").asString().body shouldBe "second, two"
+        }
+
+        scenario("with body over the limit of the route") {
+            val response = Unirest.post("http://localhost:8888/test/limited").body("more than sixteen bytes").asString()
+
+            response.status shouldBe 413
+        }
+
+        scenario("with body within the limit of the route") {
+            val response = Unirest.post("http://localhost:8888/test/limited").body("tiny").asString()
+
+            response.status shouldBe 202
+            response.body shouldBe "hello, tiny"
+        }
+
+        scenario("with body within the largest limit among the routes of the path") {
+            Unirest.post("http://localhost:8888/test/sized/small").body("tiny").asString().body shouldBe "small, tiny"
+
+            val response = Unirest.post("http://localhost:8888/test/sized/small").body("more than eight bytes").asString()
+
+            response.status shouldBe 200
+            response.body shouldBe "sized small, more than eight bytes"
+        }
+
         scenario("method not allowed") {
             val response = Unirest.post("http://localhost:8888/test/post/notAllowed").body("post").asString()
 
@@ -75,6 +126,10 @@ class PostHttpFeature : FeatureSpec({
             supply { accepted("hello, ${it.body()}") }
         }
 
+        postSync("/test/sync") {
+            created("/test/sync/${it.body()}", "created, ${it.body()}")
+        }
+
         post("/test/customResponse") {
             supply {
                 response()
@@ -89,6 +144,36 @@ class PostHttpFeature : FeatureSpec({
             supply { accepted("accepted, ${it.body()}, with version X-Version = 1 ;)") }
         }
 
+        postStream("/test/stream/upload") {
+            var received = 0L
+            it.bodyStream().forEach { chunk -> received += chunk.readableBytes() }.thenApply { "received $received bytes" }
+        }
+
+        post("/test/byBody", { it.body() == "one" }) {
+            supply { "first, ${it.body()}" }
+        }
+
+        post("/test/byBody", { it.body() == "two" }) {
+            supply { "second, ${it.body()}" }
+        }
+
+        post("/test/limited") {
+            supply { accepted("hello, ${it.body()}") }
+        }
+
+        maxContentLength("POST", "/test/limited", 16)
+
+        post("/test/sized/:size") {
+            supply { "sized ${it.pathParameters()["size"]}, ${it.body()}" }
+        }
+
+        post("/test/sized/small", { it.body().length <= 8 }) {
+            supply { "small, ${it.body()}" }
+        }
+
+        maxContentLength("POST", "/test/sized/:size", 32)
+        maxContentLength("POST", "/test/sized/small", 8)
+
         put("/test/post/notAllowed") {
             supply { accepted("accepted, ${it.body()}") }
         }
@@ -0,0 +1,58 @@
+package org.geryon.features
+
+import com.mashape.unirest.http.Unirest
+import io.kotlintest.Spec
+import io.kotlintest.matchers.shouldBe
+import io.kotlintest.specs.FeatureSpec
+import org.geryon.Http.*
+
+class RoutingFeature : FeatureSpec({
+    feature("routing") {
+        scenario("static route preferred over a parameterized one") {
+            Unirest.get("http://localhost:8888/routing/users/me").asString().body shouldBe "me"
+            Unirest.get("http://localhost:8888/routing/users/42").asString().body shouldBe "user 42"
+        }
+
+        scenario("405 when only other methods are mapped, 404 when nothing is") {
+            Unirest.get("http://localhost:8888/routing/orders").asString().status shouldBe 405
+            Unirest.get("http://localhost:8888/routing/nothing").asString().status shouldBe 404
+            Unirest.get("http://localhost:8888/routing/users/42/orders").asString().status shouldBe 404
+        }
+
+        scenario("trailing slash matched only by routes with one, or ending with a path parameter") {
+            Unirest.get("http://localhost:8888/routing/folders/1/").asString().body shouldBe "folder 1"
+            Unirest.get("http://localhost:8888/routing/folders/1").asString().status shouldBe 404
+            Unirest.get("http://localhost:8888/routing/users/42/").asString().body shouldBe "user 42"
+            Unirest.get("http://localhost:8888/routing/index/").asString().body shouldBe "index"
+            Unirest.get("http://localhost:8888/routing/index").asString().status shouldBe 404
+        }
+    }
+}) {
+    override fun interceptSpec(context: Spec, spec: () -> Unit) {
+        port(8888)
+        defaultContentType("text/plain")
+        eventLoopThreadNumber(1)
+
+        get("/routing/users/:id") {
+            supply { "user ${it.pathParameters()["id"]}" }
+        }
+
+        get("/routing/users/me") {
+            supply { "me" }
+        }
+
+        post("/routing/orders") {
+            supply { "ordered" }
+        }
+
+        get("/routing/folders/:id/") {
+            supply { "folder ${it.pathParameters()["id"]}" }
+        }
+
+        get("/routing/index/") {
+            supply { "index" }
+        }
+
+        spec()
+    }
+}
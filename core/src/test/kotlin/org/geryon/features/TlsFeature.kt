@@ -0,0 +1,113 @@
+package org.geryon.features
+
+import io.kotlintest.Spec
+import io.kotlintest.matchers.shouldBe
+import io.kotlintest.specs.FeatureSpec
+import io.netty.handler.ssl.util.SelfSignedCertificate
+import org.geryon.HttpServer
+import org.geryon.RequestHandler
+import org.geryon.RequestHandlers
+import org.geryon.Tls
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.nio.file.attribute.FileTime
+import java.security.KeyStore
+import java.security.cert.X509Certificate
+import java.util.concurrent.CompletableFuture.completedFuture
+import javax.net.ssl.SSLContext
+import javax.net.ssl.SSLSocket
+import javax.net.ssl.TrustManagerFactory
+
+private val first = SelfSignedCertificate("localhost")
+private val second = SelfSignedCertificate("localhost")
+private val directory: Path = Files.createTempDirectory("geryon-tls")
+
+class TlsFeature : FeatureSpec({
+    feature("tls") {
+        scenario("request answered over tls") {
+            val (certificate, response) = get("/tls/hello")
+
+            certificate shouldBe first.cert()
+            response.endsWith("hello, tls") shouldBe true
+        }
+
+        scenario("certificate reloaded once its files change") {
+            install(second, System.currentTimeMillis() + 60_000)
+
+            val deadline = System.currentTimeMillis() + 10_000
+            var certificate = get("/tls/hello").first
+
+            while (certificate != second.cert() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100)
+                certificate = get("/tls/hello").first
+            }
+
+            certificate shouldBe second.cert()
+        }
+    }
+}) {
+    override fun interceptSpec(context: Spec, spec: () -> Unit) {
+        install(first, System.currentTimeMillis())
+
+        RequestHandlers.addHandler(RequestHandler("GET", "/tls/hello", "text/plain", { completedFuture("hello, tls") }, null, emptyMap()))
+
+        val tls = Tls.Builder().certificateChain(directory.resolve("chain.pem")).privateKey(directory.resolve("key.pem")).reloadInterval(1).build()
+        val server = HttpServer.Builder().port(8890).eventLoopThreadNumber(1).tls(tls).build()
+        server.start()
+
+        try {
+            spec()
+        } finally {
+            server.shutdown()
+        }
+    }
+}
+
+private fun install(certificate: SelfSignedCertificate, modified: Long) {
+    for ((file, target) in listOf(certificate.certificate() to "chain.pem", certificate.privateKey() to "key.pem")) {
+        val path = Files.copy(file.toPath(), directory.resolve(target), REPLACE_EXISTING)
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified))
+    }
+}
+
+/**
+ * Sends a request over a new connection, without resuming any session, trusting both certificates.
+ *
+ * @return the certificate of the server and the response
+ */
+private fun get(path: String): Pair<X509Certificate, String> {
+    val trusted = KeyStore.getInstance(KeyStore.getDefaultType())
+    trusted.load(null)
+    trusted.setCertificateEntry("first", first.cert())
+    trusted.setCertificateEntry("second", second.cert())
+
+    val trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm())
+    trustManagers.init(trusted)
+
+    val context = SSLContext.getInstance("TLS")
+    context.init(null, trustManagers.trustManagers, null)
+
+    (context.socketFactory.createSocket("localhost", 8890) as SSLSocket).use { socket ->
+        socket.soTimeout = 5000
+        socket.outputStream.write("GET $path HTTP/1.1\r\nHost: localhost\r\n\r\n".toByteArray())
+
+        val response = StringBuilder()
+        val buffer = ByteArray(1024)
+        var read = 0
+
+        while (read >= 0 && !response.contains("\r\n\r\n")) {
+            read = socket.inputStream.read(buffer)
+            if (read > 0) response.append(String(buffer, 0, read, Charsets.UTF_8))
+        }
+
+        val length = Regex("(?i)content-length: (\\d+)").find(response)!!.groupValues[1].toInt()
+
+        while (read >= 0 && response.length - response.indexOf("\r\n\r\n") - 4 < length) {
+            read = socket.inputStream.read(buffer)
+            if (read > 0) response.append(String(buffer, 0, read, Charsets.UTF_8))
+        }
+
+        return socket.session.peerCertificates[0] as X509Certificate to response.toString()
+    }
+}
@@ -84,7 +84,45 @@ trait HandlerRegisterSupport extends ModelConversions {
   def handle(path: String, produces: String, method: String, matcher: ScalaDslRequest => Boolean, handler: ScalaDslRequest => Future[_ >: Any])(implicit ec: ExecutionContext = defaultThreadExecutor): Unit = {
     if (HttpServerInfoHolder.httpServer == null) init()
 
-    val javaFunc: JavaFunction[Request, CompletableFuture[_ <: Any]] = (t: Request) => {
+    addHandler(new RequestHandler(method, path, produces, asJavaFunc(handler), asJavaMatcher(matcher), HttpServerInfoHolder.defaultHeaders.asJava))
+  }
+
+  def postStream(path: String)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "POST", null, handler)
+  }
+
+  def postStream(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "POST", matcher, handler)
+  }
+
+  def putStream(path: String)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "PUT", null, handler)
+  }
+
+  def putStream(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "PUT", matcher, handler)
+  }
+
+  def patchStream(path: String)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "PATCH", null, handler)
+  }
+
+  def patchStream(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Future[_]): Unit = {
+    handleStream(path, HttpServerInfoHolder.defaultContentType, "PATCH", matcher, handler)
+  }
+
+  /**
+    * Registers a handler whose request body is delivered in chunks, through request.bodyStream,
+    * instead of being aggregated in memory. Meant for large uploads.
+    */
+  def handleStream(path: String, produces: String, method: String, matcher: ScalaDslRequest => Boolean, handler: ScalaDslRequest => Future[_ >: Any])(implicit ec: ExecutionContext = defaultThreadExecutor): Unit = {
+    if (HttpServerInfoHolder.httpServer == null) init()
+
+    addHandler(RequestHandler.streaming(method, path, produces, asJavaFunc(handler), asJavaMatcher(matcher), HttpServerInfoHolder.defaultHeaders.asJava))
+  }
+
+  private def asJavaFunc(handler: ScalaDslRequest => Future[_ >: Any])(implicit ec: ExecutionContext): JavaFunction[Request, CompletableFuture[_ <: Any]] = {
+    (t: Request) => {
       val promise = new CompletableFuture[Any]()
 
       try {
@@ -101,9 +139,63 @@ trait HandlerRegisterSupport extends ModelConversions {
 
       promise
     }
+  }
+
+  private def asJavaMatcher(matcher: ScalaDslRequest => Boolean): JavaFunction[Request, java.lang.Boolean] =
+    if (matcher == null) null else (t: Request) => matcher.apply(t)
+
+  def getSync(path: String)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "GET", null, handler)
+  }
 
-    val javaMatcher: JavaFunction[Request, java.lang.Boolean] = if (matcher == null) null else (t: Request) => matcher.apply(t)
+  def getSync(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "GET", matcher, handler)
+  }
+
+  def postSync(path: String)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "POST", null, handler)
+  }
+
+  def postSync(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "POST", matcher, handler)
+  }
+
+  def putSync(path: String)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "PUT", null, handler)
+  }
+
+  def putSync(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "PUT", matcher, handler)
+  }
+
+  def patchSync(path: String)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "PATCH", null, handler)
+  }
+
+  def patchSync(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "PATCH", matcher, handler)
+  }
+
+  def deleteSync(path: String)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "DELETE", null, handler)
+  }
+
+  def deleteSync(path: String, matcher: ScalaDslRequest => Boolean)(handler: ScalaDslRequest => Any): Unit = {
+    handleSync(path, HttpServerInfoHolder.defaultContentType, "DELETE", matcher, handler)
+  }
+
+  /**
+    * Registers a handler that runs inline, on the event loop, without any future involved.
+    * Meant for handlers that are cheap and never block, such as health checks or cache hits.
+    */
+  def handleSync(path: String, produces: String, method: String, matcher: ScalaDslRequest => Boolean, handler: ScalaDslRequest => Any): Unit = {
+    if (HttpServerInfoHolder.httpServer == null) init()
+
+    val javaFunc: JavaFunction[Request, Any] = (t: Request) => handler.apply(t) match {
+      case response: ScalaDslResponse => response.asJavaResponse
+      case anyResponse => anyResponse
+    }
 
-    addHandler(new RequestHandler(method, path, produces, javaFunc, javaMatcher, HttpServerInfoHolder.defaultHeaders.asJava))
+    addHandler(RequestHandler.sync(method, path, produces, javaFunc, asJavaMatcher(matcher), HttpServerInfoHolder.defaultHeaders.asJava))
   }
 }
@@ -24,6 +24,8 @@ trait ResponseSupport {
 
   def notFound: ScalaDslResponse = response.httpStatus(404).build
 
+  def notModified: ScalaDslResponse = response.httpStatus(304).build
+
   def conflict: ScalaDslResponse = response.httpStatus(419).build
 
   def conflict(body: String): ScalaDslResponse = response.httpStatus(419).body(body).build
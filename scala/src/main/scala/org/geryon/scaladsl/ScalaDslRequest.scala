@@ -1,6 +1,8 @@
 package org.geryon.scaladsl
 
-import org.geryon.Request
+import java.time.Instant
+
+import org.geryon.{BodyStream, Request}
 
 import scala.annotation.implicitNotFound
 import scala.collection.JavaConverters._
@@ -23,9 +25,12 @@ trait RequestParameters extends MatrixParameterSupport {
 
   def pathParameters(implicit request: ScalaDslRequest): Map[String, String] = request.pathParameters
 
-  def header(header: String)(implicit request: ScalaDslRequest): String = {
-    headers.get(header).orNull
-  }
+  /**
+    * The first value of the header, looked up ignoring the case of its name.
+    */
+  def header(header: String)(implicit request: ScalaDslRequest): String = request.original.header(header)
+
+  def headerValues(header: String)(implicit request: ScalaDslRequest): Seq[String] = request.original.headers(header).asScala
 
   def param(param: String)(implicit request: ScalaDslRequest): String = {
     pathParameters
@@ -45,6 +50,8 @@ trait RequestParameters extends MatrixParameterSupport {
       .get(param)
       .orNull
   }
+
+  def queryParamValues(param: String)(implicit request: ScalaDslRequest): Seq[String] = request.original.queryParameters(param).asScala
 }
 
 object ScalaDslRequest {
@@ -85,6 +92,21 @@ case class ScalaDslRequest(url: String,
                            queryParameters: Map[String, String],
                            pathParameters: Map[String, String],
                            original: Request) {
+  /**
+    * The body, in chunks, for handlers registered as streaming (None for any other handler).
+    */
+  lazy val bodyStream: Option[BodyStream] = Option(original.bodyStream())
+
+  /**
+    * Whether the client accepts the given content coding (such as gzip), e.g. to serve a precompressed body.
+    */
+  def acceptsEncoding(encoding: String): Boolean = original.acceptsEncoding(encoding)
+
+  /**
+    * Whether the client already has the representation with the given validators, as its If-None-Match or If-Modified-Since tells.
+    */
+  def isNotModified(etag: String, lastModified: Instant = null): Boolean = original.isNotModified(etag, lastModified)
+
   lazy val matrixParameters: Map[String, Map[String, String]] =
     original
       .matrixParameters()
@@ -1,5 +1,10 @@
 package org.geryon.scaladsl
 
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.nio.file.Path
+
+import io.netty.buffer.ByteBuf
 import org.geryon.Response
 
 import scala.collection.JavaConverters._
@@ -9,12 +14,30 @@ import scala.collection.JavaConverters._
   */
 class ScalaDslResponseBuilder {
   var body: Option[String] = None
+  var content: Option[AnyRef] = None
   var status: Int = 200
   var headers: Map[String, String] = _
   var contentType: String = _
 
   def body(body: String): ScalaDslResponseBuilder = {
     this.body = Some(body)
+    this.content = None
+    this
+  }
+
+  def body(body: Array[Byte]): ScalaDslResponseBuilder = content(body)
+
+  def body(body: ByteBuffer): ScalaDslResponseBuilder = content(body)
+
+  def body(body: ByteBuf): ScalaDslResponseBuilder = content(body)
+
+  def body(body: Path): ScalaDslResponseBuilder = content(body)
+
+  def body(body: InputStream): ScalaDslResponseBuilder = content(body)
+
+  private def content(content: AnyRef): ScalaDslResponseBuilder = {
+    this.content = Some(content)
+    this.body = None
     this
   }
 
@@ -33,13 +56,27 @@ class ScalaDslResponseBuilder {
     this
   }
 
-  def build = ScalaDslResponse(body, status, headers, contentType)
+  def build = ScalaDslResponse(body, status, headers, contentType, content)
 }
 
 case class ScalaDslResponse(body: Option[String],
                             status: Int,
                             headers: Map[String, String],
-                            contentType: String) {
-  def asJavaResponse: Response = new Response(body.orNull, status, headers.asJava, contentType)
+                            contentType: String,
+                            content: Option[AnyRef] = None) {
+  def asJavaResponse: Response = {
+    val builder = new Response.Builder().httpStatus(status).headers(headers.asJava).contentType(contentType)
+
+    content match {
+      case Some(bytes: Array[Byte]) => builder.body(bytes)
+      case Some(buffer: ByteBuffer) => builder.body(buffer)
+      case Some(buffer: ByteBuf) => builder.body(buffer)
+      case Some(path: Path) => builder.body(path)
+      case Some(stream: InputStream) => builder.body(stream)
+      case _ => builder.body(body.orNull)
+    }
+
+    builder.build()
+  }
 }
 
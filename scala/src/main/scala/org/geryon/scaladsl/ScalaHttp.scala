@@ -1,6 +1,8 @@
 package org.geryon.scaladsl
 
-import java.util.concurrent.Executors
+import java.util.concurrent.{Executor, Executors}
+
+import io.netty.buffer.ByteBufAllocator
 
 import org.geryon._
 
@@ -19,7 +21,27 @@ trait ScalaHttp extends RequestParameters
   override lazy private[geryon] val defaultThreadExecutor = ExecutionContext.global
 
   protected[geryon] def init(): Unit = {
-    HttpServerInfoHolder.httpServer = new HttpServer(HttpServerInfoHolder.port, HttpServerInfoHolder.eventLoopThreadNumber)
+    HttpServerInfoHolder.httpServer =
+      new HttpServer.Builder()
+        .port(HttpServerInfoHolder.port)
+        .bossThreadNumber(HttpServerInfoHolder.bossThreadNumber)
+        .eventLoopThreadNumber(HttpServerInfoHolder.eventLoopThreadNumber)
+        .reusePort(HttpServerInfoHolder.reusePort)
+        .completionExecutor(HttpServerInfoHolder.completionExecutor)
+        .allocator(HttpServerInfoHolder.allocator)
+        .maxContentLength(HttpServerInfoHolder.maxContentLength)
+        .maxHeaderSize(HttpServerInfoHolder.maxHeaderSize)
+        .maxInitialLineLength(HttpServerInfoHolder.maxInitialLineLength)
+        .maxChunkSize(HttpServerInfoHolder.maxChunkSize)
+        .http2(HttpServerInfoHolder.http2)
+        .tls(HttpServerInfoHolder.tls)
+        .compression(HttpServerInfoHolder.compression)
+        .etags(HttpServerInfoHolder.etags)
+        .metrics(HttpServerInfoHolder.metrics)
+        .metricsPath(HttpServerInfoHolder.metricsPath)
+        .probeInterval(HttpServerInfoHolder.probeInterval)
+        .build()
+
     HttpServerInfoHolder.httpServer.start()
   }
 
@@ -35,6 +57,74 @@ trait ScalaHttp extends RequestParameters
     HttpServerInfoHolder.eventLoopThreadNumber = eventLoopThreadNumber
   }
 
+  def bossThreadNumber(bossThreadNumber: Integer): Unit = {
+    HttpServerInfoHolder.bossThreadNumber = bossThreadNumber
+  }
+
+  def reusePort(reusePort: Boolean): Unit = {
+    HttpServerInfoHolder.reusePort = reusePort
+  }
+
+  def completionExecutor(executor: Executor): Unit = {
+    HttpServerInfoHolder.completionExecutor = executor
+  }
+
+  def allocator(allocator: ByteBufAllocator): Unit = {
+    HttpServerInfoHolder.allocator = allocator
+  }
+
+  def maxContentLength(maxContentLength: Integer): Unit = {
+    HttpServerInfoHolder.maxContentLength = maxContentLength
+  }
+
+  def maxContentLength(method: String, path: String, maxContentLength: Long): Unit = {
+    Http.maxContentLength(method, path, maxContentLength)
+  }
+
+  def maxHeaderSize(maxHeaderSize: Integer): Unit = {
+    HttpServerInfoHolder.maxHeaderSize = maxHeaderSize
+  }
+
+  def maxInitialLineLength(maxInitialLineLength: Integer): Unit = {
+    HttpServerInfoHolder.maxInitialLineLength = maxInitialLineLength
+  }
+
+  def maxChunkSize(maxChunkSize: Integer): Unit = {
+    HttpServerInfoHolder.maxChunkSize = maxChunkSize
+  }
+
+  def http2(http2: Boolean): Unit = {
+    HttpServerInfoHolder.http2 = http2
+  }
+
+  def tls(tls: Tls): Unit = {
+    HttpServerInfoHolder.tls = tls
+  }
+
+  def compression(compression: Compression): Unit = {
+    HttpServerInfoHolder.compression = compression
+  }
+
+  def etags(etags: Boolean): Unit = {
+    HttpServerInfoHolder.etags = etags
+  }
+
+  def cache(method: String, path: String, cache: ResponseCache): Unit = {
+    Http.cache(method, path, cache)
+  }
+
+  def metrics(metrics: Boolean): Unit = {
+    HttpServerInfoHolder.metrics = metrics
+  }
+
+  def metricsPath(metricsPath: String): Unit = {
+    HttpServerInfoHolder.metricsPath = metricsPath
+  }
+
+  def probeInterval(probeInterval: Long): Unit = {
+    HttpServerInfoHolder.probeInterval = probeInterval
+  }
+
   def stop(): Unit = {
     HttpServerInfoHolder.httpServer.shutdown()
     HttpServerInfoHolder.httpServer = null
@@ -55,7 +145,22 @@ trait ScalaHttp extends RequestParameters
 object HttpServerInfoHolder {
   var defaultContentType = "text/plain"
   var port = 8080
-  var eventLoopThreadNumber = 1
+  var eventLoopThreadNumber = Runtime.getRuntime.availableProcessors * 2
+  var bossThreadNumber = 1
+  var reusePort = false
+  var completionExecutor: Executor = _
+  var allocator: ByteBufAllocator = ByteBufAllocator.DEFAULT
+  var maxContentLength: Integer = 512 * 1024
+  var maxHeaderSize: Integer = 8192
+  var maxInitialLineLength: Integer = 4096
+  var maxChunkSize: Integer = 8192
+  var http2 = false
+  var tls: Tls = _
+  var compression: Compression = _
+  var etags = false
+  var metrics = false
+  var metricsPath: String = _
+  var probeInterval = 100L
   var defaultHeaders: mutable.Map[String, String] = mutable.Map[String, String]()
   var httpServer: HttpServer = _
 }